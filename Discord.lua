@@ -60,12 +60,22 @@ local config = {
     -- Formatting options are similar to the C library function `strftime()`
     timeStampFormat = "%A %d %B %Y - %X",
 
+    -- Port of the bot's local event socket (the "ingestPort" bot setting), or nil to always use the journal file.
+    -- Pushing events over the socket delivers them immediately and keeps disk writes off the game thread.
+    -- Requires LuaSocket; if it is missing or the bot is not listening, events are written to the journal file.
+    ingestPort = nil,
+
+    -- Write events as compact binary records instead of JSON (format version 1).
+    -- Events then only carry their placeholder values; titles, descriptions, colors and channels are sent once.
+    -- Over the event socket, binary records are only used if the bot reports that it can read them.
+    binaryRecords = false,
+
     -- Status settings:
     -- These settings control how the bot updates the server status message in Discord.
     status = {
 
         title = "🌐 Server Status",
-        description = "Real-time status updates of the server.\nThis status is dynamically updated every 30 seconds.",
+        description = "Real-time status updates of the server.\nThis status is updated whenever something changes.",
 
         --
         -- [!] NOTE: All field values except the "Server IP" are updated dynamically, so do not change them.
@@ -355,8 +365,9 @@ api_version = '1.12.0.0'
 
 local serverData, players = {}, {}
 
--- Path to the JSON Data file that will store all the events to be processed by the Discord Bot.
-local jsonEventsPath = "./Halo-Bot/halo-events.json"
+-- Path to the append-only event journal read by the Discord Bot.
+-- Each line is a single JSON record; the bot tracks how far it has read, so the file is never rewritten.
+local journalPath = "./Halo-Bot/halo-events.jsonl"
 
 -- Path to the JSON library file
 local jsonLibraryPath = "./Halo-Bot/json.lua"
@@ -364,6 +375,7 @@ local jsonLibraryPath = "./Halo-Bot/json.lua"
 local _pairs = pairs
 local _open = io.open
 local _date = os.date
+local _time = os.time
 local _clock = os.clock
 local _tonumber = tonumber
 local _insert = table.insert
@@ -373,40 +385,159 @@ local _format = string.format
 local _char = string.char
 local json = loadfile(jsonLibraryPath)()
 
+-- LuaSocket, if installed, and the open connection to the bot's event socket.
+local socketLibrary = (function()
+    local ok, library = pcall(require, "socket")
+    return ok and library or nil
+end)()
+local connection
+local nextConnectAttempt = 0
+
+-- The binary format version the connected bot reads (0 = JSON only).
+local botBinaryVersion = 0
+
+-- Binary template state: the ID of each template, keyed by event config and placeholder names, the number of IDs
+-- handed out, and the template IDs already defined on the current connection and in the current journal file.
+local templateIDs, templateCount = {}, 0
+local socketTemplates, fileTemplates = {}, {}
+
 local ffa, falling, distance, first_blood, map, mode, game_type
 
---- Reads the JSON data file and returns the decoded data as a Lua table.
--- @return Table|nil Decoded JSON data or nil if the file couldn't be read
-local function getJSONData()
-    local file = _open(jsonEventsPath, "r")
-    if file then
-        local content = file:read("*all")
-        file:close()
-        return json:decode(content)
+--- Opens the connection to the bot's event socket if it is configured and not open yet.
+-- Failed attempts are retried at most every 5 seconds, so a stopped bot does not slow the game down.
+-- @return Boolean True if a new connection was opened
+local function connect()
+    if connection or not socketLibrary or not config.ingestPort or _clock() < nextConnectAttempt then
+        return false
+    end
+    local client = socketLibrary.tcp()
+    client:settimeout(0.05)
+    if client:connect("127.0.0.1", config.ingestPort) then
+        -- The bot greets every connection with the newest binary format version it reads.
+        local hello = client:receive("*l")
+        botBinaryVersion = _tonumber(hello and hello:match('"binaryVersion":(%d+)')) or 0
+        connection = client
+        socketTemplates = {}
+        return true
     end
-    return nil
+    client:close()
+    nextConnectAttempt = _clock() + 5
+    return false
+end
+
+--- Encodes an unsigned integer as a varint.
+-- @param n number The integer
+-- @return String The encoded bytes
+local function varint(n)
+    local bytes = {}
+    repeat
+        local byte = n % 128
+        n = _floor(n / 128)
+        bytes[#bytes + 1] = _char(n > 0 and byte + 128 or byte)
+    until n == 0
+    return _concat(bytes)
 end
 
---- Updates the JSON data file with the provided Lua table and writes the encoded data to the file.
--- @param t Table The Lua table containing the updated data
-local function updateJSONData(t)
-    local file = _open(jsonEventsPath, "w")
+--- Encodes a string as its varint byte length followed by its bytes.
+-- @param value any The value, converted to a string
+-- @return String The encoded bytes
+local function varstring(value)
+    value = tostring(value)
+    return varint(#value) .. value
+end
+
+--- Wraps a binary payload in a version 1 frame.
+-- @param recordType number The record type (1 = template, 2 = event, 3 = status)
+-- @param payload String The payload after the record type and server ID
+-- @return String The frame
+local function frame(recordType, payload)
+    payload = _char(recordType) .. varstring(config.serverID) .. payload
+    return _char(0xB1, 1) .. varint(#payload) .. payload
+end
+
+--- Encodes the server status record.
+-- @param status String The status record as JSON
+-- @param binary Boolean Encode a binary frame instead of a line of JSON
+-- @return String The encoded record
+local function encodeStatus(status, binary)
+    return binary and frame(3, varstring(json:encode(serverData.status))) or status .. "\n"
+end
+
+--- Sends records to the bot over the event socket.
+-- If the send times out or fails partway, the connection is closed: the bot keeps the records it received in full
+-- and drops the partial one with the connection, so only the records after the last complete one are lost.
+-- @param records Table The encoded records to send, in order
+-- @return number The number of records, from the first, the bot received in full
+local function sendRecords(records)
+    if not connection then
+        return 0
+    end
+    local sent, _, lastByte = connection:send(_concat(records))
+    if sent then
+        return #records
+    end
+    connection:close()
+    connection = nil
+
+    local received, length = 0, 0
+    for i = 1, #records do
+        length = length + #records[i]
+        if length > (lastByte or 0) then
+            break
+        end
+        received = i
+    end
+    return received
+end
+
+--- Sends a record to the bot, preceded by the server status if it changed.
+-- Records go over the event socket when it is connected and are appended to the journal file otherwise; records a
+-- failed send did not deliver in full are appended to the journal file, without those the bot already received.
+-- A new connection and a fresh journal (e.g. after the bot rotated it) always start with a status record.
+-- @param encodeEvent Function|nil Encodes the event record given (binary, definedTemplates), or nil for the status only
+local function appendRecord(encodeEvent)
+    local status = json:encode({ server = config.serverID, type = "status", status = serverData.status })
+    local statusChanged = connect() or status ~= serverData.lastStatus
+    serverData.lastStatus = status
+
+    local writeStatus, writeEvent = statusChanged, encodeEvent ~= nil
+    if connection then
+        local binary = config.binaryRecords and botBinaryVersion >= 1
+        local records = {}
+        if statusChanged then
+            records[#records + 1] = encodeStatus(status, binary)
+        end
+        if encodeEvent then
+            records[#records + 1] = encodeEvent(binary, socketTemplates)
+        end
+        local received = sendRecords(records)
+        if received == #records then
+            return
+        end
+        writeStatus = statusChanged and received == 0
+        writeEvent = encodeEvent ~= nil and received < #records
+    end
+
+    local file = _open(journalPath, "a")
     if file then
-        file:write(json:encode_pretty(t))
+        if file:seek("end") == 0 then
+            fileTemplates = {}
+            writeStatus = true
+        end
+        if writeStatus then
+            file:write(encodeStatus(status, config.binaryRecords))
+        end
+        if writeEvent then
+            file:write(encodeEvent(config.binaryRecords, fileTemplates))
+        end
         file:close()
     end
 end
 
---- Initializes the server data with the provided server ID.
--- @param serverID String The unique server ID
+--- Initializes the server data and writes the initial server status to the journal.
 local function initServerData()
-
-    serverData = { sapp_events = {}, status = config.status }
-
-    local jsonData = getJSONData() or {}
-    jsonData[config.serverID] = serverData
-
-    updateJSONData(jsonData)
+    serverData = { status = config.status }
+    appendRecord(nil)
 end
 
 --- Initializes the script by registering callbacks for various events and setting up the server status.
@@ -465,18 +596,6 @@ local function getServerName()
     return name ~= "" and name or "Waiting for server name..."
 end
 
---- Parses a message template and replaces placeholders with corresponding values from the given arguments.
--- @param String String The message template containing placeholders
--- @param args Table A key-value table with placeholders and values
--- @return String The parsed message with placeholders replaced by their corresponding values
-local function parseMessageTemplate(String, args)
-    local message = String
-    for placeholder, value in _pairs(args) do
-        message = message:gsub(placeholder, value)
-    end
-    return message
-end
-
 --- Calculates the total number of players on the server, taking into account whether a player has quit or not.
 -- @param isQuit Boolean Indicates if a player has quit
 -- @return number Total number of players
@@ -568,7 +687,51 @@ local function getEventConfig(eventName, eventType)
     return altEvent and altEvent.enabled and altEvent or (event and event.enabled and event) or nil
 end
 
+--- Encodes an event as a binary frame, preceded by the definition of its template if it is not defined yet.
+-- @param eventName String The name of the event
+-- @param eventConfig Table The event configuration
+-- @param args Table A key-value table of placeholders and values
+-- @param time number The time of the event
+-- @param defined Table The template IDs already defined on the stream being written
+-- @return String The encoded records
+local function encodeBinaryEvent(eventName, eventConfig, args, time, defined)
+    local names = {}
+    for name in _pairs(args) do
+        names[#names + 1] = name
+    end
+    table.sort(names)
+
+    local ids = templateIDs[eventConfig] or {}
+    templateIDs[eventConfig] = ids
+    local signature = _concat(names, "\0")
+    local id = ids[signature]
+    if not id then
+        templateCount = templateCount + 1
+        id = templateCount
+        ids[signature] = id
+    end
+
+    local records, values = {}, {}
+    if not defined[id] then
+        defined[id] = true
+        local definition = {
+            varint(id), varstring(eventName), varstring(eventConfig.title), varstring(eventConfig.description),
+            varstring(eventConfig.color or config.defaultColor), varstring(eventConfig.channel), varint(#names)
+        }
+        for i = 1, #names do
+            definition[#definition + 1] = varstring(names[i])
+        end
+        records[1] = frame(1, _concat(definition))
+    end
+    for i = 1, #names do
+        values[i] = varstring(args[names[i]])
+    end
+    records[#records + 1] = frame(2, varint(id) .. varint(time) .. varint(#names) .. _concat(values))
+    return _concat(records)
+end
+
 --- Sends an event notification to Discord based on the provided event name and arguments.
+-- Placeholders are not substituted here: the bot renders them from the raw title, description and values.
 -- @param eventName String The name of the event
 -- @param args Table A key-value table containing event-specific arguments
 local function notify(eventName, args)
@@ -577,25 +740,23 @@ local function notify(eventName, args)
         return
     end
 
-    local title = parseMessageTemplate(eventConfig.title, args)
-    local message = parseMessageTemplate(eventConfig.description, args)
-    local color = eventConfig.color or config.defaultColor
-    local channel = eventConfig.channel
-
-    local jsonData = getJSONData() or {}
-    if not jsonData[config.serverID] then
-        return
-    end
-
-    jsonData[config.serverID].status = serverData.status
-    _insert(jsonData[config.serverID].sapp_events, {
-        title = title,
-        description = message,
-        color = color,
-        channel = channel
-    })
-
-    updateJSONData(jsonData)
+    local time = _time()
+    appendRecord(function(binary, defined)
+        if binary then
+            return encodeBinaryEvent(eventName, eventConfig, args, time, defined)
+        end
+        return json:encode({
+            server = config.serverID,
+            type = "event",
+            event = eventName,
+            time = time,
+            title = eventConfig.title,
+            description = eventConfig.description,
+            color = eventConfig.color or config.defaultColor,
+            channel = eventConfig.channel,
+            args = args
+        }) .. "\n"
+    end)
 end
 
 --- Retrieves a tag address based on the provided type and name.
@@ -2,119 +2,333 @@
    See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
 package com.chalwk.CommandManager;
 
-import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Manages command cooldowns by storing and checking command usage timestamps for each user and command.
+ * Manages command cooldowns per user and command.
+ * <p>
+ * Every command is registered once and identified by its index from then on. Its cooldown is a token bucket: a user
+ * may run the command {@link CommandInterface#getCooldownBurst()} times in a row, and earns one run back every
+ * {@link CommandInterface#getCooldown()}. A plain cooldown is a bucket of one. Each bucket is stored as a single
+ * {@code System.nanoTime()} deadline, the time at which it is full again, in an open-addressing table keyed by the
+ * user's snowflake and the command index, so a check allocates nothing.
+ * <p>
+ * A bucket that is full again carries no information, so it is evicted: a timing wheel of {@link #WHEEL_SIZE} one
+ * second slots remembers which entries expire when, and the slots that have passed are swept on every check. Memory
+ * is therefore bounded by the users active within the longest cooldown, not by every user who ever ran a command.
  */
 public class CommandCooldownManager {
 
+    // The resolution of the timing wheel.
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // The number of slots in the timing wheel. Longer cooldowns wrap around and are kept until they expire.
+    private static final int WHEEL_SIZE = 64;
+
+    // The initial capacity of the table; always a power of two.
+    private static final int INITIAL_CAPACITY = 64;
+
+    // The refill period and capacity of each registered command's bucket, by command index.
+    private long[] periods = new long[0];
+    private int[] bursts = new int[0];
+
+    // The table of buckets. A user ID of 0 marks a free slot; Discord never issues that snowflake.
+    private long[] users = new long[INITIAL_CAPACITY];
+    private int[] commands = new int[INITIAL_CAPACITY];
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+    private int size;
+
+    // The entries to check for eviction, by the wheel tick of their deadline.
+    private final Slot[] wheel = new Slot[WHEEL_SIZE];
+
+    // The oldest wheel tick that has not been swept yet.
+    private long wheelTick = Math.floorDiv(System.nanoTime(), TICK_NANOS);
+
     /**
-     * Default cooldown duration for commands, in seconds.
+     * Creates a manager without registered commands.
      */
-    private static final long COOLDOWN_DURATION_SECONDS = 5;
+    public CommandCooldownManager() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Slot();
+        }
+    }
 
     /**
-     * A map containing user IDs as keys and another map for each user with command names as keys and timestamps as values.
+     * Registers a command and its cooldown.
+     *
+     * @param command The command.
+     * @return The index identifying the command in later checks.
+     * @throws IllegalArgumentException If the cooldown is negative or the burst is less than one.
      */
-    private final ConcurrentMap<String, Map<String, Instant>> commandUserCooldowns = new ConcurrentHashMap<>();
+    public synchronized int register(CommandInterface command) {
+        Duration cooldown = command.getCooldown();
+        int burst = command.getCooldownBurst();
+        if (cooldown.isNegative() || burst < 1) {
+            throw new IllegalArgumentException("Invalid cooldown of command " + command.getName() + ": " + cooldown
+                    + " x " + burst);
+        }
+        int index = periods.length;
+        periods = Arrays.copyOf(periods, index + 1);
+        bursts = Arrays.copyOf(bursts, index + 1);
+        periods[index] = cooldown.toNanos();
+        bursts[index] = burst;
+        return index;
+    }
 
     /**
-     * Checks if a specific command is on cooldown for the given user.
+     * Checks if a command is on cooldown for the user who ran it, and replies with the remaining time if it is.
+     * Otherwise, the run is counted against the user's bucket.
      *
-     * @param commandName the name of the command to check
-     * @param user        the user executing the command
-     * @return true if the command is not on cooldown, false otherwise
+     * @param event   The event containing the command and user.
+     * @param command The index of the command, as returned by {@link #register}.
+     * @return true if the command is on cooldown and the user has been told, false if it may run.
      */
-    public boolean isOnCooldown(String commandName, User user) {
-        return !checkCooldown(commandName, user);
+    public boolean isOnCooldown(SlashCommandInteractionEvent event, int command) {
+        long wait = tryAcquire(event.getUser().getIdLong(), command, System.nanoTime());
+        if (wait == 0) {
+            return false;
+        }
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TICK_NANOS - 1));
+        event.reply(String.format("Cooldown in progress. Please wait %d seconds before using the command again.", seconds))
+                .setEphemeral(true).queue();
+        return true;
     }
 
     /**
-     * Sets a command on cooldown for the given user by updating their timestamp.
+     * Takes a token from a user's bucket for a command, if one is available.
      *
-     * @param commandName the name of the command to set on cooldown
-     * @param user        the user executing the command
+     * @param user    The snowflake of the user.
+     * @param command The index of the command.
+     * @param now     The current {@code System.nanoTime()}.
+     * @return 0 if the command may run, otherwise the nanoseconds until it may.
      */
-    public void setCooldown(String commandName, User user) {
-        Map<String, Instant> userCommandCooldowns = commandUserCooldowns.computeIfAbsent(user.getId(), k -> new ConcurrentHashMap<>());
-        userCommandCooldowns.put(commandName, Instant.now());
+    public synchronized long tryAcquire(long user, int command, long now) {
+        sweep(now);
+        long period = periods[command];
+        if (period == 0) {
+            return 0;
+        }
+
+        int slot = find(user, command);
+        long full = slot >= 0 && deadlines[slot] - now > 0 ? deadlines[slot] : now;
+        long allowed = full - (bursts[command] - 1) * period;
+        if (now - allowed < 0) {
+            return allowed - now;
+        }
+
+        long deadline = full + period;
+        if (slot >= 0) {
+            deadlines[slot] = deadline;
+        } else {
+            insert(user, command, deadline);
+        }
+        wheel[wheelIndex(deadline)].add(user, command);
+        return 0;
     }
 
     /**
-     * Checks if the given command is on cooldown for the specified user by comparing their last execution timestamp with
-     * the current time.
+     * Gives back a token taken by {@link #tryAcquire}, for a run that was turned away before the command started.
      *
-     * @param commandName the name of the command to check
-     * @param user        the user executing the command
-     * @return true if the command is on cooldown, false otherwise
+     * @param user    The snowflake of the user.
+     * @param command The index of the command.
+     * @param now     The current {@code System.nanoTime()}.
      */
-    private boolean checkCooldown(String commandName, User user) {
-        Map<String, Instant> userCommandCooldowns = commandUserCooldowns.get(user.getId());
-        if (userCommandCooldowns == null) {
-            return false;
+    public synchronized void refund(long user, int command, long now) {
+        int slot = find(user, command);
+        if (slot < 0) {
+            return;
         }
+        long deadline = deadlines[slot] - periods[command];
+        if (deadline - now <= 0) {
+            remove(slot);
+            return;
+        }
+        deadlines[slot] = deadline;
+        wheel[wheelIndex(deadline)].add(user, command);
+    }
 
-        Instant lastExecutionTime = userCommandCooldowns.get(commandName);
-        if (lastExecutionTime == null) {
-            return false;
+    /**
+     * Gets the number of users and commands currently on cooldown.
+     *
+     * @return The number of entries in the table.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Evicts the expired entries of every wheel tick that has passed.
+     *
+     * @param now The current {@code System.nanoTime()}.
+     */
+    private void sweep(long now) {
+        long tick = Math.floorDiv(now, TICK_NANOS);
+        long ticks = Math.min(tick - wheelTick, WHEEL_SIZE);
+        for (long i = 0; i < ticks; i++) {
+            sweep(wheel[Math.floorMod(wheelTick + i, WHEEL_SIZE)], now);
         }
+        wheelTick = Math.max(wheelTick, tick);
+    }
 
-        long elapsedTime = Duration.between(lastExecutionTime, Instant.now()).getSeconds();
-        return elapsedTime >= getCooldownDuration();
+    /**
+     * Evicts the expired entries of a wheel slot, keeping those that expire in a later revolution of the wheel.
+     * Entries whose deadline has moved to another slot are dropped, as that slot already holds them.
+     *
+     * @param wheelSlot The wheel slot.
+     * @param now       The current {@code System.nanoTime()}.
+     */
+    private void sweep(Slot wheelSlot, long now) {
+        int kept = 0;
+        for (int i = 0; i < wheelSlot.size; i++) {
+            long user = wheelSlot.users[i];
+            int command = wheelSlot.commands[i];
+            int slot = find(user, command);
+            if (slot < 0) continue;
+            long deadline = deadlines[slot];
+            if (deadline - now <= 0) {
+                remove(slot);
+            } else if (wheel[wheelIndex(deadline)] == wheelSlot) {
+                wheelSlot.users[kept] = user;
+                wheelSlot.commands[kept] = command;
+                kept++;
+            }
+        }
+        wheelSlot.size = kept;
     }
 
     /**
-     * Handles a cooldown error by sending a message to the user and setting the command on cooldown.
+     * Gets the wheel slot an entry is checked in.
      *
-     * @param event the event containing the command and user
+     * @param deadline The deadline of the entry.
+     * @return The index of the wheel slot.
      */
-    public void handleCooldownError(SlashCommandInteractionEvent event) {
-        String commandName = event.getName();
-        User user = event.getUser();
-        Map<String, Instant> userCommandCooldowns = commandUserCooldowns.get(user.getId());
-        Instant lastExecutionTime = userCommandCooldowns.get(commandName);
-        long elapsedTime = Duration.between(lastExecutionTime, Instant.now()).getSeconds();
-        long remainingTime = getCooldownDuration() - elapsedTime;
-        if (remainingTime > 0) {
-            event.reply(String.format("Cooldown in progress. Please wait %d seconds before using the command again.", remainingTime))
-                    .setEphemeral(true).queue();
+    private static int wheelIndex(long deadline) {
+        return Math.floorMod(Math.floorDiv(deadline, TICK_NANOS), WHEEL_SIZE);
+    }
+
+    /**
+     * Finds the table slot of an entry.
+     *
+     * @param user    The snowflake of the user.
+     * @param command The index of the command.
+     * @return The table slot, or -1 if there is no entry.
+     */
+    private int find(long user, int command) {
+        int mask = users.length - 1;
+        for (int slot = hash(user, command) & mask; users[slot] != 0; slot = (slot + 1) & mask) {
+            if (users[slot] == user && commands[slot] == command) {
+                return slot;
+            }
         }
+        return -1;
     }
 
     /**
-     * Checks if a command is on cooldown for the given user and handles cooldown errors if necessary.
+     * Adds an entry that is not in the table yet, growing the table when it is half full.
      *
-     * @param event the event containing the command and user
-     * @return true if the command is on cooldown and an error has been handled, false otherwise
+     * @param user     The snowflake of the user.
+     * @param command  The index of the command.
+     * @param deadline The time at which the user's bucket is full again.
      */
-    public boolean isOnCooldown(SlashCommandInteractionEvent event) {
-        String commandName = event.getName();
-        User user = event.getUser();
-        Map<String, Instant> userCommandCooldowns = commandUserCooldowns.get(user.getId());
-        if (userCommandCooldowns == null || !userCommandCooldowns.containsKey(commandName)) {
-            return false;
+    private void insert(long user, int command, long deadline) {
+        if ((size + 1) * 2 > users.length) {
+            resize(users.length * 2);
+        }
+        int mask = users.length - 1;
+        int slot = hash(user, command) & mask;
+        while (users[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        users[slot] = user;
+        commands[slot] = command;
+        deadlines[slot] = deadline;
+        size++;
+    }
+
+    /**
+     * Removes an entry, shifting back the entries of its probe sequence so every entry stays reachable.
+     *
+     * @param slot The table slot of the entry.
+     */
+    private void remove(int slot) {
+        int mask = users.length - 1;
+        int free = slot;
+        for (int next = (free + 1) & mask; users[next] != 0; next = (next + 1) & mask) {
+            int home = hash(users[next], commands[next]) & mask;
+            // Move the entry into the free slot unless its home lies cyclically between the two.
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                users[free] = users[next];
+                commands[free] = commands[next];
+                deadlines[free] = deadlines[next];
+                free = next;
+            }
         }
-        if (isOnCooldown(commandName, user)) {
-            handleCooldownError(event);
-            return true;
+        users[free] = 0;
+        size--;
+    }
+
+    /**
+     * Rebuilds the table with a new capacity.
+     *
+     * @param capacity The new capacity; a power of two.
+     */
+    private void resize(int capacity) {
+        long[] oldUsers = users;
+        int[] oldCommands = commands;
+        long[] oldDeadlines = deadlines;
+        users = new long[capacity];
+        commands = new int[capacity];
+        deadlines = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldUsers.length; i++) {
+            if (oldUsers[i] != 0) {
+                insert(oldUsers[i], oldCommands[i], oldDeadlines[i]);
+            }
         }
-        return false;
     }
 
     /**
-     * Gets the cooldown duration, in seconds, for commands.
+     * Hashes an entry key.
      *
-     * @return the cooldown duration
+     * @param user    The snowflake of the user.
+     * @param command The index of the command.
+     * @return The hash.
      */
-    public long getCooldownDuration() {
-        return COOLDOWN_DURATION_SECONDS;
+    private static int hash(long user, int command) {
+        long h = user ^ (command * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * The entries checked for eviction in one tick of the timing wheel.
+     */
+    private static final class Slot {
+
+        private long[] users = new long[8];
+        private int[] commands = new int[8];
+        private int size;
+
+        /**
+         * Adds an entry.
+         *
+         * @param user    The snowflake of the user.
+         * @param command The index of the command.
+         */
+        private void add(long user, int command) {
+            if (size == users.length) {
+                users = Arrays.copyOf(users, size * 2);
+                commands = Arrays.copyOf(commands, size * 2);
+            }
+            users[size] = user;
+            commands[size] = command;
+            size++;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,235 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.CommandManager;
+
+import com.chalwk.util.Execution;
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.Metrics.Histogram;
+import com.chalwk.util.Metrics.Metrics;
+import com.chalwk.util.Settings;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs slash commands off JDA's gateway event thread.
+ * <p>
+ * Commands are queued on a bounded pool of {@code commandThreads} threads (virtual threads in the virtual execution
+ * mode), so a command doing file I/O or waiting on Discord never holds up other gateway events. A command that
+ * declares itself {@linkplain CommandInterface#isDeferred() deferred} is acknowledged with {@code deferReply()} as
+ * soon as it arrives and may take as long as its timeout. Any other command must reply itself, so if it has not
+ * started within {@link #ACK_DEADLINE_MILLIS}, before Discord invalidates its interaction, it is dropped with a busy
+ * reply instead. A command running longer than its {@linkplain CommandInterface#getTimeout() timeout} is interrupted.
+ * Queue and execution times are logged for every command and recorded in histograms for monitoring.
+ */
+public class CommandDispatcher {
+
+    // How long a command that is not deferred may wait in the queue; Discord expires unacknowledged interactions after 3 seconds.
+    private static final long ACK_DEADLINE_MILLIS = 2500;
+
+    // The number of threads running commands.
+    private static final int THREADS = Math.max(1, Settings.getInt("commandThreads", 4));
+
+    // The most commands waiting for a thread before new ones are turned away.
+    private static final int QUEUE_CAPACITY = Math.max(1, Settings.getInt("commandQueueCapacity", 100));
+
+    private static final String BUSY_MESSAGE = "The bot is busy. Please try again in a moment.";
+    private static final String ERROR_MESSAGE = "An error occurred while executing the command. Please try again later.";
+
+    // Invocation states.
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int EXPIRED = 2;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), Execution.threadFactory("command", true),
+            new ThreadPoolExecutor.AbortPolicy());
+
+    // Expires queued commands and interrupts commands that run too long.
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Execution.threadFactory("command-timer", true));
+
+    // Statistics, for monitoring.
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final Histogram queueLatency = Metrics.histogram("halo_command_queue_micros",
+            "Time slash commands wait for a thread, in microseconds");
+    private final Histogram executionLatency = Metrics.histogram("halo_command_execution_micros",
+            "Time slash commands take to run, in microseconds");
+
+    /**
+     * Creates a dispatcher and registers its metrics.
+     */
+    public CommandDispatcher() {
+        Metrics.gauge("halo_command_queued", "Slash commands waiting for a thread", this::getQueued);
+        Metrics.counter("halo_commands_executed_total", "Slash commands run", this::getExecuted);
+        Metrics.counter("halo_commands_rejected_total", "Slash commands turned away because the bot was busy",
+                this::getRejected);
+        Metrics.counter("halo_commands_timed_out_total", "Slash commands interrupted by their timeout",
+                this::getTimedOut);
+    }
+
+    /**
+     * Queues a command for execution. Must be called on the thread that received the interaction.
+     *
+     * @param command      The command to run.
+     * @param event        The SlashCommandInteractionEvent object containing command event details.
+     * @param onTurnedAway Run if the command is turned away with a busy reply instead of being run.
+     */
+    public void dispatch(CommandInterface command, SlashCommandInteractionEvent event, Runnable onTurnedAway) {
+        if (command.isDeferred()) {
+            event.deferReply(true).queue();
+        }
+
+        Invocation invocation = new Invocation(command, event, onTurnedAway);
+        try {
+            invocation.future = executor.submit(invocation);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            Logger.warning("Command queue full, turning away command " + command.getName());
+            onTurnedAway.run();
+            reply(event, BUSY_MESSAGE);
+            return;
+        }
+
+        if (!command.isDeferred()) {
+            timer.schedule(invocation::expire, ACK_DEADLINE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gets the number of commands waiting for a thread.
+     *
+     * @return The queue length.
+     */
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Gets the number of commands that have finished running.
+     *
+     * @return The number of commands executed.
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * Gets the number of commands turned away because the queue was full or they waited too long.
+     *
+     * @return The number of commands rejected.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Gets the number of commands interrupted for running longer than their timeout.
+     *
+     * @return The number of commands timed out.
+     */
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * Sends an ephemeral message to the user who ran a command, as a reply or, once the interaction has been
+     * acknowledged, as a follow-up.
+     *
+     * @param event   The SlashCommandInteractionEvent object containing command event details.
+     * @param message The message.
+     */
+    private static void reply(SlashCommandInteractionEvent event, String message) {
+        if (event.isAcknowledged()) {
+            event.getHook().sendMessage(message).setEphemeral(true).queue();
+        } else {
+            event.reply(message).setEphemeral(true).queue();
+        }
+    }
+
+    /**
+     * A single queued command.
+     */
+    private final class Invocation implements Runnable {
+
+        private final CommandInterface command;
+        private final SlashCommandInteractionEvent event;
+        private final Runnable onTurnedAway;
+
+        // When the command was received, in System.nanoTime().
+        private final long received = System.nanoTime();
+
+        // QUEUED until a thread starts the command or it expires in the queue.
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        // The queued task, set right after submission.
+        private volatile Future<?> future;
+
+        /**
+         * Creates an invocation.
+         *
+         * @param command      The command to run.
+         * @param event        The SlashCommandInteractionEvent object containing command event details.
+         * @param onTurnedAway Run if the command expires in the queue.
+         */
+        private Invocation(CommandInterface command, SlashCommandInteractionEvent event, Runnable onTurnedAway) {
+            this.command = command;
+            this.event = event;
+            this.onTurnedAway = onTurnedAway;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) return;
+
+            long started = System.nanoTime();
+            ScheduledFuture<?> timeout = timer.schedule(this::timeout, command.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                command.execute(event);
+            } catch (IOException | RuntimeException e) {
+                Logger.warning("Error executing command " + command.getName() + ": " + e.getMessage());
+                reply(event, ERROR_MESSAGE);
+            } finally {
+                timeout.cancel(false);
+                long finished = System.nanoTime();
+                executed.incrementAndGet();
+                queueLatency.record(TimeUnit.NANOSECONDS.toMicros(started - received));
+                executionLatency.record(TimeUnit.NANOSECONDS.toMicros(finished - started));
+                Logger.fine("Command {} finished", command.getName(),
+                        Logger.field("queueMs", TimeUnit.NANOSECONDS.toMillis(started - received)),
+                        Logger.field("latencyMs", TimeUnit.NANOSECONDS.toMillis(finished - started)));
+            }
+        }
+
+        /**
+         * Drops the command if it is still queued when its interaction is about to expire.
+         */
+        private void expire() {
+            if (state.compareAndSet(QUEUED, EXPIRED)) {
+                executor.remove((Runnable) future);
+                rejected.incrementAndGet();
+                Logger.warning("Command " + command.getName() + " waited too long for a thread, turning it away");
+                onTurnedAway.run();
+                reply(event, BUSY_MESSAGE);
+            }
+        }
+
+        /**
+         * Interrupts the command after it has run for longer than its timeout.
+         */
+        private void timeout() {
+            Future<?> task = future;
+            if (task == null || task.isDone()) return;
+            timedOut.incrementAndGet();
+            Logger.warning("Command " + command.getName() + " timed out after " + command.getTimeout().toMillis() + " ms");
+            task.cancel(true);
+            reply(event, "The command took too long and was stopped.");
+        }
+    }
+}
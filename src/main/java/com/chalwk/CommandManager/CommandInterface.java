@@ -5,9 +5,14 @@ package com.chalwk.CommandManager;
 
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This interface defines the structure for commands used in the Discord bot's CommandManager.
@@ -35,6 +40,65 @@ public interface CommandInterface {
      */
     List<OptionData> getOptions();
 
+    /**
+     * Returns how long a user must wait between runs of the command.
+     *
+     * @return The cooldown, or zero for none. Defaults to 5 seconds.
+     */
+    default Duration getCooldown() {
+        return Duration.ofSeconds(5);
+    }
+
+    /**
+     * Returns how many times in a row a user may run the command before the cooldown applies. Each cooldown period
+     * earns one run back.
+     *
+     * @return The burst size, at least 1. Defaults to 1.
+     */
+    default int getCooldownBurst() {
+        return 1;
+    }
+
+    /**
+     * Returns whether the command is acknowledged with an ephemeral {@code deferReply()} as soon as it arrives.
+     * A deferred command may take longer than Discord's three second reply window, and must answer through
+     * {@code event.getHook()} instead of {@code event.reply()}.
+     *
+     * @return true to defer the reply. Defaults to false.
+     */
+    default boolean isDeferred() {
+        return false;
+    }
+
+    /**
+     * Returns how long the command may run before it is interrupted.
+     *
+     * @return The timeout. Defaults to 30 seconds.
+     */
+    default Duration getTimeout() {
+        return Duration.ofSeconds(30);
+    }
+
+    /**
+     * Returns the gateway intents the command needs. Slash commands arrive with the invoking member and their
+     * resolved options whatever the intents, so only a command that reads other members, presences or message
+     * content needs any; the lean cache profile enables nothing else.
+     *
+     * @return The intents. Defaults to none.
+     */
+    default Set<GatewayIntent> getRequiredIntents() {
+        return EnumSet.noneOf(GatewayIntent.class);
+    }
+
+    /**
+     * Returns the JDA caches the command needs, e.g. {@link CacheFlag#VOICE_STATE} to see who is in a voice channel.
+     *
+     * @return The cache flags. Defaults to none.
+     */
+    default Set<CacheFlag> getRequiredCacheFlags() {
+        return EnumSet.noneOf(CacheFlag.class);
+    }
+
     /**
      * Executes the command with the given event.
      *
@@ -4,12 +4,14 @@
 package com.chalwk.CommandManager;
 
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,40 +28,90 @@ public class CommandListener extends ListenerAdapter {
     private final Map<String, CommandInterface> commands = new HashMap<>();
 
     /**
-     * Registers all available commands in all guilds upon JDA's ready event.
+     * The cooldown index of each command, keyed by command name.
+     */
+    private final Map<String, Integer> cooldownIndexes = new HashMap<>();
+
+    /**
+     * Enforces the cooldowns declared by the commands.
+     */
+    private final CommandCooldownManager cooldowns = new CommandCooldownManager();
+
+    /**
+     * Runs commands off JDA's event thread.
+     */
+    private final CommandDispatcher dispatcher = new CommandDispatcher();
+
+    /**
+     * Registers the commands with Discord, prepared on the first ready event once all commands have been added.
+     */
+    private CommandRegistration registration;
+
+    /**
+     * Registers all available commands in all guilds upon JDA's ready event, skipping guilds that already have them.
      *
      * @param event The ReadyEvent object containing JDA's initialization details.
      */
     @Override
     public void onReady(@NotNull ReadyEvent event) {
+        CommandRegistration registration = getRegistration();
         for (Guild guild : event.getJDA().getGuilds()) {
-            for (CommandInterface command : commands.values()) {
-                guild.upsertCommand(command.getName(), command.getDescription())
-                        .addOptions(command.getOptions())
-                        .queue();
-            }
+            registration.register(guild);
+        }
+    }
+
+    /**
+     * Registers all available commands in a guild the bot has just joined.
+     *
+     * @param event The GuildJoinEvent object containing the guild.
+     */
+    @Override
+    public void onGuildJoin(@NotNull GuildJoinEvent event) {
+        getRegistration().register(event.getGuild());
+    }
+
+    /**
+     * Gets the command registration, preparing it on first use.
+     *
+     * @return The command registration.
+     */
+    private synchronized CommandRegistration getRegistration() {
+        if (registration == null) {
+            registration = new CommandRegistration(commands.values());
         }
+        return registration;
     }
 
     /**
-     * Executes the appropriate command based on the given slash command interaction event.
+     * Dispatches the appropriate command based on the given slash command interaction event, unless it is on
+     * cooldown for the user. The command runs on the {@link CommandDispatcher}'s threads, so it does not hold up
+     * JDA's event thread. A run the dispatcher turns away because the bot is busy does not count against the
+     * cooldown.
      *
      * @param event The SlashCommandInteractionEvent object containing command event details.
      */
     @Override
     public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
         CommandInterface command = commands.get(event.getName());
-        if (command != null) {
-            try {
-                command.execute(event);
-            } catch (IOException e) {
-                event.reply("An error occurred while executing the command. Please try again later.").setEphemeral(true).queue();
-                // Log the error
-                System.err.println("Error executing command: " + e.getMessage());
-            }
+        if (command == null) {
+            return;
+        }
+        int cooldown = cooldownIndexes.get(command.getName());
+        if (!cooldowns.isOnCooldown(event, cooldown)) {
+            dispatcher.dispatch(command, event,
+                    () -> cooldowns.refund(event.getUser().getIdLong(), cooldown, System.nanoTime()));
         }
     }
 
+    /**
+     * Gets the registered commands.
+     *
+     * @return The commands, unmodifiable.
+     */
+    public Collection<CommandInterface> getCommands() {
+        return Collections.unmodifiableCollection(commands.values());
+    }
+
     /**
      * Adds a new command to the list of available commands.
      *
@@ -67,5 +119,6 @@ public class CommandListener extends ListenerAdapter {
      */
     public void add(CommandInterface command) {
         commands.put(command.getName(), command);
+        cooldownIndexes.put(command.getName(), cooldowns.register(command));
     }
 }
\ No newline at end of file
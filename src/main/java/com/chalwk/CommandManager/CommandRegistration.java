@@ -0,0 +1,114 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.CommandManager;
+
+import com.chalwk.util.FileIO;
+import com.chalwk.util.Logging.Logger;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Registers the slash commands with each guild, only when they have changed.
+ * <p>
+ * The definitions of all commands are hashed, and a guild whose stored hash matches has nothing to update. Any other
+ * guild gets all commands in a single bulk {@code updateCommands()} call, which also removes commands that no longer
+ * exist, and its hash is stored in {@link #REGISTRATION_FILE} once Discord has accepted them. A startup or reconnect
+ * with unchanged commands therefore makes no registration calls at all.
+ */
+public class CommandRegistration {
+
+    public static final String REGISTRATION_FILE = "command-registrations.json";
+
+    // The hash of the command definitions registered with each guild, keyed by guild ID.
+    private final JSONObject registered;
+
+    // The command definitions, sorted by name.
+    private final List<SlashCommandData> definitions;
+
+    // The hash of the command definitions.
+    private final String hash;
+
+    /**
+     * Prepares the registration of a set of commands and loads the hashes stored by earlier runs.
+     *
+     * @param commands The commands to register.
+     */
+    public CommandRegistration(Collection<CommandInterface> commands) {
+        this.definitions = commands.stream()
+                .sorted(Comparator.comparing(CommandInterface::getName))
+                .map(command -> Commands.slash(command.getName(), command.getDescription())
+                        .addOptions(command.getOptions()))
+                .toList();
+        this.hash = hash(definitions);
+        this.registered = load();
+    }
+
+    /**
+     * Registers the commands with a guild unless it already has the current definitions.
+     *
+     * @param guild The guild.
+     */
+    public void register(Guild guild) {
+        String guildID = guild.getId();
+        synchronized (registered) {
+            if (hash.equals(registered.optString(guildID, null))) {
+                Logger.fine("Commands of " + guild.getName() + " are up to date");
+                return;
+            }
+        }
+
+        guild.updateCommands().addCommands(definitions).queue(commands -> {
+            Logger.info("Registered " + commands.size() + " commands with " + guild.getName());
+            synchronized (registered) {
+                registered.put(guildID, hash);
+                FileIO.saveJSONObjectToFile(new JSONObject(registered.toMap()), REGISTRATION_FILE);
+            }
+        }, error -> Logger.warning("Error registering commands with " + guild.getName() + ": " + error.getMessage()));
+    }
+
+    /**
+     * Loads the hashes stored by earlier runs.
+     *
+     * @return The stored hashes, keyed by guild ID; empty if there are none or they cannot be read.
+     */
+    private static JSONObject load() {
+        try {
+            return FileIO.getJSONObjectFromFile(REGISTRATION_FILE);
+        } catch (IOException | JSONException e) {
+            Logger.warning("Error reading " + REGISTRATION_FILE + ", registering commands with every guild: " + e.getMessage());
+            return new JSONObject();
+        }
+    }
+
+    /**
+     * Hashes command definitions.
+     *
+     * @param definitions The command definitions, in a stable order.
+     * @return The SHA-256 hash of their JSON representation, in hex.
+     */
+    private static String hash(List<SlashCommandData> definitions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (SlashCommandData definition : definitions) {
+                digest.update(definition.toData().toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -3,6 +3,7 @@
 package com.chalwk;
 
 import com.chalwk.bot.BotInitializer;
+import com.chalwk.util.Logging.Logger;
 
 import java.io.IOException;
 
@@ -14,6 +15,9 @@ public class Main {
      * @param args Command-line arguments passed to the application.
      */
     public static void main(String[] args) {
+        // Apply the logging settings before anything else logs.
+        Logger.configure();
+
         try {
             // Initialize the bot using the BotInitializer class.
             new BotInitializer().initializeBot();
@@ -3,15 +3,20 @@ package com.chalwk.bot;
 import com.chalwk.CommandManager.CommandListener;
 import com.chalwk.commands.channel;
 import com.chalwk.util.Listeners.GuildReady;
+import com.chalwk.util.Listeners.ShardReady;
+import com.chalwk.util.Metrics.Metrics;
+import com.chalwk.util.Metrics.RestMetrics;
 import com.chalwk.util.authentication;
 import net.dv8tion.jda.api.OnlineStatus;
 import net.dv8tion.jda.api.entities.Activity;
-import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
 import net.dv8tion.jda.api.sharding.ShardManager;
-import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class BotInitializer {
 
@@ -40,18 +45,22 @@ public class BotInitializer {
      */
     public void initializeBot() throws IOException {
         try {
-            DefaultShardManagerBuilder builder = DefaultShardManagerBuilder.createDefault(this.token)
+            CommandListener commands = createCommands();
+
+            // Subscribe only to the intents and caches the commands and the monitor need, unless configured otherwise.
+            CacheProfile profile = CacheProfile.fromSettings();
+            profile.logSummary(commands.getCommands());
+
+            DefaultShardManagerBuilder builder = profile.createBuilder(this.token, commands.getCommands())
                     .setStatus(STATUS)
                     .setActivity(Activity.playing(GAME_NAME))
-                    .setMemberCachePolicy(MemberCachePolicy.ALL)
-                    .enableIntents(GatewayIntent.GUILD_MEMBERS,
-                            GatewayIntent.GUILD_MESSAGES,
-                            GatewayIntent.GUILD_PRESENCES,
-                            GatewayIntent.MESSAGE_CONTENT);
+                    // An HTTP client like JDA's default one, instrumented to count and time REST calls.
+                    .setHttpClientBuilder(createHttpClientBuilder().addInterceptor(new RestMetrics()));
+
+            Metrics.start();
 
             shardManager = builder.build();
-            shardManager.addEventListener(new GuildReady());
-            registerCommands(shardManager);
+            shardManager.addEventListener(new GuildReady(), new ShardReady(), commands);
         } catch (Exception e) {
             // Log or handle the exception as appropriate
             System.err.println("Error initializing the bot: " + e.getMessage());
@@ -60,13 +69,28 @@ public class BotInitializer {
     }
 
     /**
-     * Registers commands with the ShardManager.
+     * Creates the builder of the HTTP client JDA sends REST calls through, configured like JDA's default client:
+     * up to 25 concurrent requests to Discord and a pool of 5 idle connections kept for 10 seconds.
+     *
+     * @return The HTTP client builder.
+     */
+    private static OkHttpClient.Builder createHttpClientBuilder() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(25);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(5, 10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Creates the command listener with the bot's commands. The commands are known before the shard manager is
+     * built, so the intents and caches they need can be enabled.
      *
-     * @param shardManager The ShardManager to register commands with.
+     * @return The command listener.
      */
-    private void registerCommands(ShardManager shardManager) {
+    private CommandListener createCommands() {
         CommandListener commands = new CommandListener();
         commands.add(new channel()); // Ensure the command class name reflects its purpose
-        shardManager.addEventListener(commands);
+        return commands;
     }
 }
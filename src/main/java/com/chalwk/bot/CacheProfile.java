@@ -0,0 +1,134 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.bot;
+
+import com.chalwk.CommandManager.CommandInterface;
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.ServerMonitor;
+import com.chalwk.util.Settings;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Chooses which gateway intents the bot subscribes to and what JDA caches, set by the {@code cacheProfile} setting.
+ * <p>
+ * The bot only posts embeds and answers slash commands, so by default it runs the {@link #NOTIFIER} profile: it
+ * subscribes to the intents the registered commands and the {@link ServerMonitor} ask for, which is none, caches no
+ * members and no optional entity data, and never requests member chunks. Discord then stops sending presence, member
+ * and message events, which in large guilds saves tens of megabytes of heap and the gateway threads' time spent
+ * parsing them. {@link #FULL} keeps the previous behaviour of caching every member with the privileged intents
+ * enabled, for commands that need it.
+ */
+public enum CacheProfile {
+
+    // Every member cached, with the members, messages, presences and message content intents.
+    FULL,
+
+    // Only the intents and caches the commands and the monitor need; no member cache and no chunking.
+    NOTIFIER;
+
+    // The intents the full profile adds to JDA's default ones.
+    private static final Set<GatewayIntent> FULL_INTENTS = EnumSet.of(GatewayIntent.GUILD_MEMBERS,
+            GatewayIntent.GUILD_MESSAGES, GatewayIntent.GUILD_PRESENCES, GatewayIntent.MESSAGE_CONTENT);
+
+    /**
+     * Gets the profile chosen by the {@code cacheProfile} setting, {@link #NOTIFIER} by default.
+     *
+     * @return The profile.
+     */
+    public static CacheProfile fromSettings() {
+        String name = Settings.getString("cacheProfile", NOTIFIER.name());
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Logger.warning("Unknown cache profile " + name + ", using " + NOTIFIER.name());
+            return NOTIFIER;
+        }
+    }
+
+    /**
+     * Creates the shard manager builder for this profile.
+     *
+     * @param token    The bot token.
+     * @param commands The commands the bot registers.
+     * @return The builder, with the intents and caches of this profile applied.
+     */
+    public DefaultShardManagerBuilder createBuilder(String token, Collection<CommandInterface> commands) {
+        if (this == FULL) {
+            return DefaultShardManagerBuilder.createDefault(token)
+                    .setMemberCachePolicy(MemberCachePolicy.ALL)
+                    .enableIntents(FULL_INTENTS);
+        }
+
+        // createLight starts with every optional cache disabled, no member cache and no chunking.
+        DefaultShardManagerBuilder builder = DefaultShardManagerBuilder.createLight(token, getIntents(commands))
+                .setMemberCachePolicy(MemberCachePolicy.NONE)
+                .setChunkingFilter(ChunkingFilter.NONE);
+        Set<CacheFlag> caches = getCacheFlags(commands);
+        if (!caches.isEmpty()) {
+            builder.enableCache(caches);
+        }
+        return builder;
+    }
+
+    /**
+     * Gets the gateway intents of this profile.
+     *
+     * @param commands The commands the bot registers.
+     * @return The intents.
+     */
+    public Set<GatewayIntent> getIntents(Collection<CommandInterface> commands) {
+        if (this == FULL) {
+            Set<GatewayIntent> intents = GatewayIntent.getIntents(GatewayIntent.DEFAULT);
+            intents.addAll(FULL_INTENTS);
+            return intents;
+        }
+        Set<GatewayIntent> intents = EnumSet.noneOf(GatewayIntent.class);
+        intents.addAll(ServerMonitor.REQUIRED_INTENTS);
+        for (CommandInterface command : commands) {
+            intents.addAll(command.getRequiredIntents());
+        }
+        return intents;
+    }
+
+    /**
+     * Gets the optional caches the lean profile enables: those the commands ask for.
+     *
+     * @param commands The commands the bot registers.
+     * @return The cache flags.
+     */
+    private static Set<CacheFlag> getCacheFlags(Collection<CommandInterface> commands) {
+        Set<CacheFlag> caches = EnumSet.noneOf(CacheFlag.class);
+        for (CommandInterface command : commands) {
+            caches.addAll(command.getRequiredCacheFlags());
+        }
+        return caches;
+    }
+
+    /**
+     * Logs the intents and caches of this profile and the heap in use, as a baseline for the heap once the guilds
+     * have loaded.
+     *
+     * @param commands The commands the bot registers.
+     */
+    public void logSummary(Collection<CommandInterface> commands) {
+        Set<GatewayIntent> intents = getIntents(commands);
+        Set<CacheFlag> caches = this == FULL ? null : getCacheFlags(commands);
+        Runtime runtime = Runtime.getRuntime();
+        Logger.info("Cache profile {}", name(),
+                Logger.field("intents", intents.isEmpty() ? "none" : intents),
+                Logger.field("caches", caches == null ? "JDA defaults" : caches.isEmpty() ? "none" : caches),
+                Logger.field("memberCache", this == FULL ? "all" : "none"),
+                Logger.field("heapUsedMB", (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)),
+                Logger.field("heapMaxMB", runtime.maxMemory() / (1024 * 1024)));
+    }
+}
@@ -2,7 +2,6 @@
    See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
 package com.chalwk.commands;
 
-import com.chalwk.CommandManager.CommandCooldownManager;
 import com.chalwk.CommandManager.CommandInterface;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
@@ -16,8 +15,6 @@ import java.util.List;
  */
 public class channel implements CommandInterface {
 
-    private static final CommandCooldownManager COOLDOWN_MANAGER = new CommandCooldownManager();
-
     @Override
     public String getName() {
         return "channel";
@@ -45,9 +42,6 @@ public class channel implements CommandInterface {
 
     @Override
     public void execute(SlashCommandInteractionEvent event) {
-
-        if (COOLDOWN_MANAGER.isOnCooldown(event)) return;
-
-        COOLDOWN_MANAGER.setCooldown(getName(), event.getUser());
+        // Cooldowns are enforced by the CommandListener before a command runs.
     }
 }
\ No newline at end of file
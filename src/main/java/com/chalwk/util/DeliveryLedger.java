@@ -0,0 +1,173 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Tracks which journal events have been delivered to Discord, so none are lost and none are sent twice.
+ * <p>
+ * Every event is identified by its sequence number, the byte offset at which its record starts in the journal. An
+ * event is pending from the moment it is read until Discord confirms its message, when it is acknowledged. The
+ * committed offset is the start of the oldest pending event, or the read position if nothing is pending: everything
+ * before it has been delivered. Events acknowledged out of order beyond the committed offset are remembered as well.
+ * <p>
+ * Both are checkpointed to {@link #CHECKPOINT_FILE} through {@link WriteBehind}, which replaces the file atomically
+ * before every flush and at shutdown, so a crash leaves either the old or the new checkpoint and never a torn one.
+ * After a restart the journal is read again from the committed offset and the remembered events are skipped:
+ * delivery is at least once, and only events whose acknowledgement had not been checkpointed yet can be sent again.
+ */
+public class DeliveryLedger {
+
+    public static final String CHECKPOINT_FILE = "halo-events.checkpoint";
+
+    private final Path file;
+
+    // The events read but not yet acknowledged, by sequence number.
+    private final NavigableSet<Long> pending = new TreeSet<>();
+
+    // The events acknowledged at or beyond the committed offset, by sequence number.
+    private final NavigableSet<Long> delivered = new TreeSet<>();
+
+    // The read position in the journal.
+    private long cursor;
+
+    // Whether the state has changed since the last checkpoint.
+    private boolean dirty;
+
+    /**
+     * Loads the last checkpoint.
+     *
+     * @throws IOException If an I/O error occurs reading the checkpoint.
+     */
+    public DeliveryLedger() throws IOException {
+        this.file = FileIO.getFilePath(CHECKPOINT_FILE);
+        load();
+        WriteBehind.register(this::checkpoint);
+    }
+
+    /**
+     * Gets the committed offset, where reading resumes after a restart.
+     *
+     * @return The start of the oldest pending event, or the read position if nothing is pending.
+     */
+    public synchronized long getCommitted() {
+        return pending.isEmpty() ? cursor : pending.first();
+    }
+
+    /**
+     * Checks whether every event read so far has been acknowledged.
+     *
+     * @return true if nothing is pending, false otherwise.
+     */
+    public synchronized boolean isSettled() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Checks whether an event was acknowledged before the last restart.
+     *
+     * @param sequence The sequence number of the event.
+     * @return true if the event must not be delivered again, false otherwise.
+     */
+    public synchronized boolean isDelivered(long sequence) {
+        return delivered.contains(sequence);
+    }
+
+    /**
+     * Records an event as read and awaiting delivery.
+     *
+     * @param sequence The sequence number of the event.
+     */
+    public synchronized void track(long sequence) {
+        pending.add(sequence);
+    }
+
+    /**
+     * Records an event as delivered.
+     *
+     * @param sequence The sequence number of the event.
+     */
+    public synchronized void acknowledge(long sequence) {
+        if (pending.remove(sequence)) {
+            delivered.add(sequence);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Moves the read position.
+     *
+     * @param position The offset just after the last record read.
+     */
+    public synchronized void advance(long position) {
+        cursor = position;
+        dirty = true;
+    }
+
+    /**
+     * Starts over at the beginning of a new journal file. Must only be called when nothing is pending, or the
+     * pending events have been given up.
+     */
+    public synchronized void reset() {
+        pending.clear();
+        delivered.clear();
+        cursor = 0;
+        dirty = true;
+        checkpoint();
+    }
+
+    /**
+     * Submits the checkpoint for writing if anything has changed since the last one. Runs before every
+     * {@link WriteBehind} flush.
+     */
+    public synchronized void checkpoint() {
+        if (!dirty) {
+            return;
+        }
+        long committed = getCommitted();
+        delivered.headSet(committed).clear();
+
+        FileIO.saveJSONObjectToFile(new JSONObject()
+                .put("offset", committed)
+                .put("delivered", new JSONArray(delivered)), CHECKPOINT_FILE);
+        dirty = false;
+    }
+
+    /**
+     * Restores the committed offset and the events delivered beyond it, or starts from the beginning of the journal
+     * if there is no checkpoint yet.
+     *
+     * @throws IOException If an I/O error occurs reading the checkpoint.
+     */
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try {
+            JSONObject state = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+            cursor = state.optLong("offset", 0);
+            JSONArray sequences = state.optJSONArray("delivered");
+            if (sequences != null) {
+                for (int i = 0; i < sequences.length(); i++) {
+                    delivered.add(sequences.getLong(i));
+                }
+            }
+        } catch (JSONException e) {
+            Logger.warning("Invalid delivery checkpoint, starting from the beginning: " + e.getMessage());
+            cursor = 0;
+        }
+    }
+}
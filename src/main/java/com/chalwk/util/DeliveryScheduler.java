@@ -0,0 +1,313 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Delivers Discord REST calls with bounded concurrency and bounded queues.
+ * <p>
+ * Event notifications wait in a FIFO queue of fixed capacity and always go out before status updates. Status
+ * updates are coalesced per server: only the newest pending update for a server is kept, and it is not started
+ * while an earlier update for the same server is still in flight, so edits can never land out of order. At most
+ * {@link #MAX_IN_FLIGHT} requests are outstanding at once; when Discord slows down, work backs up in these bounded
+ * queues instead of in an ever-growing pool of blocked threads.
+ * <p>
+ * In the virtual {@link Execution} mode each delivery runs on its own virtual thread and blocks on
+ * {@code complete()}; its route is held in a {@link RouteLimiter} for the duration of the call. A delivery is only
+ * started once its route is free, so deliveries waiting on a busy route stay queued without taking a slot, and the
+ * next delivery to a free route goes ahead of them.
+ */
+public class DeliveryScheduler {
+
+    // The most REST requests outstanding at once.
+    private static final int MAX_IN_FLIGHT = Settings.getInt("deliveryMaxInFlight", 8);
+
+    // The most event notifications waiting to be delivered; further notifications are rejected.
+    private static final int EVENT_QUEUE_CAPACITY = Settings.getInt("deliveryQueueCapacity", 1000);
+
+    private final Object lock = new Object();
+
+    // Pending event notifications, in submission order.
+    private final Deque<Delivery> events = new ArrayDeque<>();
+
+    // The newest pending status update of each server, keyed by server ID.
+    private final Map<String, Delivery> statuses = new LinkedHashMap<>();
+
+    // The servers whose status update is in flight.
+    private final Set<String> activeStatuses = new HashSet<>();
+
+    // Free delivery slots, and the number of deliveries actually started and not yet completed.
+    private final Semaphore slots = new Semaphore(MAX_IN_FLIGHT);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Runs blocking deliveries in the virtual execution mode, or null in the platform mode.
+    private final ExecutorService executor;
+
+    // Limits the blocking deliveries running against each route.
+    private final RouteLimiter routes = new RouteLimiter();
+
+    // The number of event notifications rejected because the queue was full.
+    private long rejected;
+
+    /**
+     * Creates a DeliveryScheduler and starts its dispatcher thread.
+     */
+    public DeliveryScheduler() {
+        this.executor = Execution.isVirtual() ? Execution.newBlockingExecutor("delivery", MAX_IN_FLIGHT) : null;
+        Execution.startThread("delivery-dispatcher", this::dispatch);
+    }
+
+    /**
+     * Queues an event notification.
+     *
+     * @param route     The Discord route the call is made against, see {@link RouteLimiter#channelRoute(String)}.
+     * @param action    Builds the REST call when it is time to deliver it.
+     * @param onSuccess Run once Discord has confirmed the call.
+     * @param onFailure Run with the cause if the call fails.
+     * @return true if the notification was queued, false if the queue is full and it was rejected.
+     */
+    public boolean submitEvent(String route, Supplier<RestAction<?>> action, Runnable onSuccess,
+                               Consumer<Throwable> onFailure) {
+        synchronized (lock) {
+            if (events.size() >= EVENT_QUEUE_CAPACITY) {
+                rejected++;
+                Logger.warning("Delivery queue is full, rejecting an event notification (" + rejected + " rejected so far).");
+                return false;
+            }
+            events.add(new Delivery(null, route, action, onSuccess, onFailure));
+            lock.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Queues a status update, replacing any status update of the same server that has not started yet.
+     *
+     * @param serverID  The ID of the server the status belongs to.
+     * @param route     The Discord route the call is made against, see {@link RouteLimiter#channelRoute(String)}.
+     * @param action    Builds the REST call when it is time to deliver it.
+     * @param onFailure Run with the cause if the call fails.
+     */
+    public void submitStatus(String serverID, String route, Supplier<RestAction<?>> action,
+                             Consumer<Throwable> onFailure) {
+        synchronized (lock) {
+            statuses.put(serverID, new Delivery(serverID, route, action, () -> {
+            }, onFailure));
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Gets the number of event notifications waiting to be delivered.
+     *
+     * @return The event queue depth.
+     */
+    public int getQueuedEvents() {
+        synchronized (lock) {
+            return events.size();
+        }
+    }
+
+    /**
+     * Gets the number of status updates waiting to be delivered.
+     *
+     * @return The status queue depth.
+     */
+    public int getQueuedStatuses() {
+        synchronized (lock) {
+            return statuses.size();
+        }
+    }
+
+    /**
+     * Gets the number of servers whose status update is in flight.
+     *
+     * @return The number of status updates in flight.
+     */
+    public int getActiveStatuses() {
+        synchronized (lock) {
+            return activeStatuses.size();
+        }
+    }
+
+    /**
+     * Gets the number of REST requests currently outstanding.
+     *
+     * @return The number of requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the number of event notifications rejected because the queue was full.
+     *
+     * @return The number of rejected notifications.
+     */
+    public long getRejected() {
+        synchronized (lock) {
+            return rejected;
+        }
+    }
+
+    /**
+     * The dispatcher loop: waits for a free slot, then starts the next delivery.
+     */
+    private void dispatch() {
+        try {
+            while (true) {
+                slots.acquire();
+                Delivery delivery;
+                synchronized (lock) {
+                    while ((delivery = next()) == null) {
+                        lock.wait();
+                    }
+                }
+                start(delivery);
+            }
+        } catch (InterruptedException e) {
+            Logger.fine("Delivery dispatcher stopped.");
+        }
+    }
+
+    /**
+     * Takes the next delivery to start: the oldest event notification, or else the oldest status update whose
+     * server has no update in flight, skipping those whose route is busy. Must be called while holding the lock.
+     *
+     * @return The next delivery, with its route claimed, or null if nothing can be started.
+     */
+    private Delivery next() {
+        Iterator<Delivery> pendingEvents = events.iterator();
+        while (pendingEvents.hasNext()) {
+            Delivery event = pendingEvents.next();
+            if (claimRoute(event)) {
+                pendingEvents.remove();
+                return event;
+            }
+        }
+        Iterator<Delivery> iterator = statuses.values().iterator();
+        while (iterator.hasNext()) {
+            Delivery status = iterator.next();
+            if (!activeStatuses.contains(status.serverID()) && claimRoute(status)) {
+                activeStatuses.add(status.serverID());
+                iterator.remove();
+                return status;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claims the route of a delivery about to start. Only blocking deliveries hold their route; in the platform mode
+     * JDA's requester queues calls per route itself.
+     *
+     * @param delivery The delivery.
+     * @return true if the delivery may start, false if its route is busy.
+     */
+    private boolean claimRoute(Delivery delivery) {
+        return executor == null || routes.tryAcquire(delivery.route());
+    }
+
+    /**
+     * Releases the route of a blocking delivery whose call has completed, and wakes the dispatcher in case a delivery
+     * is waiting for it.
+     *
+     * @param delivery The delivery.
+     */
+    private void releaseRoute(Delivery delivery) {
+        synchronized (lock) {
+            routes.release(delivery.route());
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Starts a delivery; its slot is released once the REST call completes.
+     *
+     * @param delivery The delivery to start.
+     */
+    private void start(Delivery delivery) {
+        inFlight.incrementAndGet();
+        if (executor != null) {
+            executor.execute(() -> complete(delivery));
+            return;
+        }
+        try {
+            delivery.action().get().submit().whenComplete((result, failure) -> {
+                if (failure != null) {
+                    delivery.onFailure().accept(failure);
+                } else {
+                    delivery.onSuccess().run();
+                }
+                finish(delivery);
+            });
+        } catch (RuntimeException e) {
+            delivery.onFailure().accept(e);
+            finish(delivery);
+        }
+    }
+
+    /**
+     * Runs a delivery to completion on the current thread, releasing its route once the REST call has completed.
+     *
+     * @param delivery The delivery to run.
+     */
+    private void complete(Delivery delivery) {
+        RuntimeException failure = null;
+        try {
+            delivery.action().get().complete();
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            releaseRoute(delivery);
+        }
+        try {
+            if (failure != null) {
+                delivery.onFailure().accept(failure);
+            } else {
+                delivery.onSuccess().run();
+            }
+        } finally {
+            finish(delivery);
+        }
+    }
+
+    /**
+     * Releases the slot of a completed delivery.
+     *
+     * @param delivery The completed delivery.
+     */
+    private void finish(Delivery delivery) {
+        if (delivery.serverID() != null) {
+            synchronized (lock) {
+                activeStatuses.remove(delivery.serverID());
+                lock.notifyAll();
+            }
+        }
+        inFlight.decrementAndGet();
+        slots.release();
+    }
+
+    /**
+     * A queued REST call.
+     *
+     * @param serverID  The server a status update belongs to, or null for an event notification.
+     * @param route     The Discord route the call is made against.
+     * @param action    Builds the REST call when it is time to deliver it.
+     * @param onSuccess Run once Discord has confirmed the call.
+     * @param onFailure Run with the cause if the call fails.
+     */
+    private record Delivery(String serverID, String route, Supplier<RestAction<?>> action, Runnable onSuccess,
+                            Consumer<Throwable> onFailure) {
+    }
+}
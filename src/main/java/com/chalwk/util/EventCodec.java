@@ -0,0 +1,441 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Encodes and decodes journal records in either of the two formats Discord.lua can write.
+ * <p>
+ * A legacy record is a single line of JSON. A binary record is a frame: the {@link #MAGIC} byte, a format version
+ * byte, the payload length as a varint and the payload. The magic byte can never start a JSON line, so the format is
+ * detected record by record and both can be mixed in the same journal or connection. Every payload starts with its
+ * record type and server ID:
+ * <ul>
+ *     <li>{@link #TEMPLATE}: template ID, event name, title, description, color, channel and placeholder names.
+ *     Defines a template once; templates are interned per server and replaced when an ID is defined again.</li>
+ *     <li>{@link #EVENT}: template ID, time and one value per placeholder of the template.</li>
+ *     <li>{@link #STATUS}: the server status as compact JSON.</li>
+ * </ul>
+ * Integers are unsigned LEB128 varints and strings are a varint byte length followed by UTF-8 bytes. A JSON event may
+ * likewise carry its raw title and description with an {@code args} object of placeholder values instead of rendered
+ * texts. Either way, placeholders are rendered here with {@link MessageTemplate}s compiled once per template, and
+ * decoded event and status records are the same JSON objects the legacy format produces, so the rest of the pipeline
+ * only ever sees one shape. A writer learns the newest version the bot reads from the {@link #hello()} line sent to every
+ * socket connection; frames of unknown versions are skipped.
+ */
+public class EventCodec {
+
+    // The first byte of every binary frame; a UTF-8 continuation byte, so it cannot start a line of JSON.
+    public static final int MAGIC = 0xB1;
+
+    // The newest binary format version this codec reads and writes.
+    public static final int VERSION = 1;
+
+    // Binary record types.
+    public static final int TEMPLATE = 1;
+    public static final int EVENT = 2;
+    public static final int STATUS = 3;
+
+    // The most raw JSON templates kept compiled; the cache starts over when a changed configuration exceeds it.
+    private static final int MAX_RAW_TEMPLATES = 1024;
+
+    // The templates defined by each server, keyed by server ID and template ID.
+    private final Map<String, Map<Integer, Template>> templates = new HashMap<>();
+
+    // The titles and descriptions of raw JSON events, compiled on first use and keyed by text and placeholder names.
+    private final Map<RawKey, MessageTemplate> rawTemplates = new HashMap<>();
+
+    /**
+     * Finds the end of the record starting at the given index.
+     *
+     * @param buffer The buffer holding the record; only the bytes up to its limit are examined.
+     * @param start  The index of the first byte of the record.
+     * @return The index just after the record, or -1 if the record is not complete yet.
+     */
+    public static int recordEnd(ByteBuffer buffer, int start) {
+        int limit = buffer.limit();
+        if ((buffer.get(start) & 0xFF) == MAGIC) {
+            // Magic, version, then the payload length.
+            int index = start + 2;
+            long length = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (index >= limit) return -1;
+                if (shift > 28) return limit; // A corrupt length; treat the rest of the buffer as the record.
+                int b = buffer.get(index++);
+                length |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+            }
+            return index + length <= limit ? (int) (index + length) : -1;
+        }
+        for (int i = start; i < limit; i++) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the line a socket connection is greeted with, telling the writer which binary version to use.
+     *
+     * @return The hello line, including its newline.
+     */
+    public static byte[] hello() {
+        return (new JSONObject().put("type", "hello").put("binaryVersion", VERSION) + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a single record in either format. Template definitions are interned and return null.
+     *
+     * @param record The record, from the buffer's position to its limit, as delimited by {@link #recordEnd}.
+     * @return The decoded event or status record, or null if the record carries nothing to deliver.
+     * @throws IllegalArgumentException If the record is malformed or refers to an unknown template.
+     * @throws org.json.JSONException   If a legacy record is not valid JSON.
+     */
+    public synchronized JSONObject decode(ByteBuffer record) {
+        if ((record.get(record.position()) & 0xFF) != MAGIC) {
+            JSONObject json = new JSONObject(new JSONTokener(new ByteBufferInputStream(record)));
+            JSONObject args = json.optJSONObject("args");
+            return args == null ? json : renderRaw(json, args);
+        }
+        try {
+            record.get(); // magic
+            int version = record.get() & 0xFF;
+            int length = readVarint(record);
+            if (version > VERSION) {
+                Logger.warning("Skipping binary record of unsupported version " + version);
+                return null;
+            }
+            ByteBuffer payload = record.slice(record.position(), length);
+            return decodePayload(payload);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated binary record", e);
+        }
+    }
+
+    /**
+     * Renders the title and description of a raw JSON event, which carries its template texts and a placeholder
+     * values object instead of rendered texts.
+     *
+     * @param record The event record.
+     * @param args   The placeholder values, keyed by placeholder name.
+     * @return The record, with its title and description rendered and without its values.
+     */
+    private JSONObject renderRaw(JSONObject record, JSONObject args) {
+        String[] names = args.keySet().toArray(String[]::new);
+        Arrays.sort(names);
+        String[] values = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = String.valueOf(args.get(names[i]));
+        }
+        record.remove("args");
+        record.put("title", rawTemplate(record.optString("title"), names).render(values));
+        record.put("description", rawTemplate(record.optString("description"), names).render(values));
+        return record;
+    }
+
+    /**
+     * Gets the compiled template of a raw JSON event text, compiling it on first use.
+     *
+     * @param text  The text, with placeholders.
+     * @param names The placeholder names, sorted.
+     * @return The compiled template.
+     */
+    private MessageTemplate rawTemplate(String text, String[] names) {
+        RawKey key = new RawKey(text, List.of(names));
+        MessageTemplate template = rawTemplates.get(key);
+        if (template == null) {
+            if (rawTemplates.size() >= MAX_RAW_TEMPLATES) {
+                rawTemplates.clear();
+            }
+            template = MessageTemplate.compile(text, names);
+            rawTemplates.put(key, template);
+        }
+        return template;
+    }
+
+    /**
+     * Decodes the payload of a binary record.
+     *
+     * @param payload The payload.
+     * @return The decoded event or status record, or null for a template definition.
+     */
+    private JSONObject decodePayload(ByteBuffer payload) {
+        int type = payload.get() & 0xFF;
+        String server = readString(payload);
+        switch (type) {
+            case TEMPLATE -> {
+                int id = readVarint(payload);
+                String event = readString(payload);
+                String title = readString(payload);
+                String description = readString(payload);
+                String color = readString(payload);
+                String channel = readString(payload);
+                String[] placeholders = new String[readVarint(payload)];
+                for (int i = 0; i < placeholders.length; i++) {
+                    placeholders[i] = readString(payload);
+                }
+                templates.computeIfAbsent(server, key -> new HashMap<>())
+                        .put(id, Template.compile(event, title, description, color, channel, placeholders));
+                return null;
+            }
+            case EVENT -> {
+                int id = readVarint(payload);
+                Template template = templates.getOrDefault(server, Map.of()).get(id);
+                if (template == null) {
+                    throw new IllegalArgumentException("Unknown template " + id + " of server " + server);
+                }
+                long time = readVarlong(payload);
+                String[] values = new String[readVarint(payload)];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readString(payload);
+                }
+                return new JSONObject()
+                        .put("server", server)
+                        .put("type", "event")
+                        .put("event", template.event())
+                        .put("time", time)
+                        .put("title", template.title().render(values))
+                        .put("description", template.description().render(values))
+                        .put("color", template.color())
+                        .put("channel", template.channel());
+            }
+            case STATUS -> {
+                return new JSONObject()
+                        .put("server", server)
+                        .put("type", "status")
+                        .put("status", new JSONObject(readString(payload)));
+            }
+            default -> {
+                Logger.warning("Skipping binary record of unknown type " + type);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Encodes the definitions of every interned template, so a fresh journal can be started with them.
+     *
+     * @return The template frames, one after another.
+     */
+    public synchronized byte[] encodeTemplates() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        templates.forEach((server, defined) -> defined.forEach((id, template) ->
+                out.writeBytes(encodeTemplate(server, id, template))));
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes a template definition frame.
+     *
+     * @param server   The ID of the server defining the template.
+     * @param id       The template ID.
+     * @param template The template.
+     * @return The frame.
+     */
+    public static byte[] encodeTemplate(String server, int id, Template template) {
+        ByteArrayOutputStream payload = header(TEMPLATE, server);
+        writeVarint(payload, id);
+        writeString(payload, template.event());
+        writeString(payload, template.title().source());
+        writeString(payload, template.description().source());
+        writeString(payload, template.color());
+        writeString(payload, template.channel());
+        String[] placeholders = template.title().placeholders();
+        writeVarint(payload, placeholders.length);
+        for (String placeholder : placeholders) {
+            writeString(payload, placeholder);
+        }
+        return frame(payload);
+    }
+
+    /**
+     * Encodes an event frame.
+     *
+     * @param server The ID of the server the event happened on.
+     * @param id     The ID of the template to render the event with.
+     * @param time   The time of the event, in seconds since the epoch.
+     * @param values The values of the template's placeholders, in order.
+     * @return The frame.
+     */
+    public static byte[] encodeEvent(String server, int id, long time, String... values) {
+        ByteArrayOutputStream payload = header(EVENT, server);
+        writeVarint(payload, id);
+        writeVarlong(payload, time);
+        writeVarint(payload, values.length);
+        for (String value : values) {
+            writeString(payload, value);
+        }
+        return frame(payload);
+    }
+
+    /**
+     * Encodes a status frame.
+     *
+     * @param server The ID of the server.
+     * @param status The server status.
+     * @return The frame.
+     */
+    public static byte[] encodeStatus(String server, JSONObject status) {
+        ByteArrayOutputStream payload = header(STATUS, server);
+        writeString(payload, status.toString());
+        return frame(payload);
+    }
+
+    /**
+     * Starts a payload with its record type and server ID.
+     *
+     * @param type   The record type.
+     * @param server The server ID.
+     * @return The payload so far.
+     */
+    private static ByteArrayOutputStream header(int type, String server) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write(type);
+        writeString(payload, server);
+        return payload;
+    }
+
+    /**
+     * Wraps a payload in a frame of the current version.
+     *
+     * @param payload The payload.
+     * @return The frame.
+     */
+    private static byte[] frame(ByteArrayOutputStream payload) {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.size() + 7);
+        frame.write(MAGIC);
+        frame.write(VERSION);
+        writeVarint(frame, payload.size());
+        frame.writeBytes(payload.toByteArray());
+        return frame.toByteArray();
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param out   The stream to write to.
+     * @param value The value, treated as unsigned.
+     */
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        writeVarlong(out, Integer.toUnsignedLong(value));
+    }
+
+    /**
+     * Writes an unsigned 64-bit varint.
+     *
+     * @param out   The stream to write to.
+     * @param value The value, treated as unsigned.
+     */
+    private static void writeVarlong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string.
+     *
+     * @param out   The stream to write to.
+     * @param value The string.
+     */
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    /**
+     * Reads a varint that must fit in an int.
+     *
+     * @param in The buffer to read from.
+     * @return The value.
+     * @throws IllegalArgumentException If the value does not fit in an int.
+     */
+    private static int readVarint(ByteBuffer in) {
+        long value = readVarlong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a 64-bit varint.
+     *
+     * @param in The buffer to read from.
+     * @return The value.
+     * @throws IllegalArgumentException If the varint is longer than ten bytes.
+     */
+    private static long readVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     *
+     * @param in The buffer to read from.
+     * @return The string.
+     */
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Identifies a compiled raw JSON event text.
+     *
+     * @param text  The text, with placeholders.
+     * @param names The placeholder names, sorted.
+     */
+    private record RawKey(String text, List<String> names) {
+    }
+
+    /**
+     * An interned event template, compiled when it is defined.
+     *
+     * @param event       The name of the event.
+     * @param title       The compiled title.
+     * @param description The compiled description.
+     * @param color       The name of the embed color.
+     * @param channel     The ID of the channel the event is sent to.
+     */
+    public record Template(String event, MessageTemplate title, MessageTemplate description, String color,
+                           String channel) {
+
+        /**
+         * Compiles a template definition.
+         *
+         * @param event        The name of the event.
+         * @param title        The title, with placeholders.
+         * @param description  The description, with placeholders.
+         * @param color        The name of the embed color.
+         * @param channel      The ID of the channel the event is sent to.
+         * @param placeholders The placeholder names, in the order event records give their values.
+         * @return The template.
+         */
+        public static Template compile(String event, String title, String description, String color, String channel,
+                                       String[] placeholders) {
+            return new Template(event, MessageTemplate.compile(title, placeholders),
+                    MessageTemplate.compile(description, placeholders), color, channel);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+
+/**
+ * Accepts journal records pushed by Discord.lua over a loopback TCP socket.
+ * <p>
+ * Each connection carries the same records Discord.lua would otherwise append to the event journal, as lines of JSON
+ * or binary frames (see {@link EventCodec}). Every connection is greeted with an {@link EventCodec#hello()} line
+ * naming the binary format version the bot reads. A single non-blocking selector thread serves all connections;
+ * complete records are appended to the {@link EventJournal} in one write per wakeup, and the monitor is woken straight
+ * away instead of waiting for a file change notification. The journal remains the single record of what has been delivered, and Discord.lua falls back
+ * to writing it directly whenever the socket is unavailable.
+ */
+public class EventIngestServer implements Runnable, AutoCloseable {
+
+    // The longest record accepted, in bytes; a connection sending a longer one is closed.
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final EventJournal journal;
+
+    // Run after new records have been appended to the journal.
+    private final Runnable onRecords;
+
+    // The complete records received during the current wakeup, waiting to be appended to the journal.
+    private ByteBuffer pending = ByteBuffer.allocate(MAX_RECORD_BYTES);
+
+    /**
+     * Binds the ingestion socket to the loopback address.
+     *
+     * @param port      The TCP port to listen on.
+     * @param journal   The journal the received records are appended to.
+     * @param onRecords Run on the ingestion thread after new records have been appended.
+     * @throws IOException If the socket cannot be bound.
+     */
+    public EventIngestServer(int port, EventJournal journal, Runnable onRecords) throws IOException {
+        this.journal = journal;
+        this.onRecords = onRecords;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Starts serving connections on a daemon thread.
+     */
+    public void start() {
+        Execution.startThread("event-ingest", this);
+    }
+
+    @Override
+    public void run() {
+        try (selector; server) {
+            while (selector.isOpen()) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+                flush();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            Logger.fine("Event ingestion stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Accepts a pending connection and registers it for reading.
+     *
+     * @throws IOException If an I/O error occurs configuring the connection.
+     */
+    private void accept() throws IOException {
+        SocketChannel client = server.accept();
+        if (client == null) return;
+        client.configureBlocking(false);
+        // The greeting is a few bytes, so it always fits in an empty socket buffer.
+        client.write(ByteBuffer.wrap(EventCodec.hello()));
+        client.register(selector, SelectionKey.OP_READ, new Connection());
+        Logger.fine("Event ingestion connection from " + client.getRemoteAddress());
+    }
+
+    /**
+     * Reads what a connection has sent and moves its complete records to the pending records.
+     *
+     * @param key The selection key of the connection.
+     */
+    private void read(SelectionKey key) {
+        SocketChannel client = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (client.read(connection.buffer) < 0) {
+                // Anything after the last complete record is dropped with the connection.
+                close(key);
+                return;
+            }
+        } catch (IOException e) {
+            Logger.fine("Event ingestion connection lost: " + e.getMessage());
+            close(key);
+            return;
+        }
+
+        ByteBuffer buffer = connection.buffer.flip();
+        int start = 0;
+        int end;
+        while (start < buffer.limit() && (end = EventCodec.recordEnd(buffer, start)) >= 0) {
+            queue(buffer.duplicate().position(start).limit(end));
+            start = end;
+        }
+        buffer.position(start).compact();
+
+        if (!buffer.hasRemaining()) {
+            // The buffer is full without a complete record; the writer reconnects and starts over.
+            Logger.warning("Closing an ingestion connection that sent a record longer than " + MAX_RECORD_BYTES + " bytes.");
+            close(key);
+        }
+    }
+
+    /**
+     * Adds a complete record to the pending records, growing the pending buffer if it is full.
+     *
+     * @param record The record, including its newline if it is a line of JSON.
+     */
+    private void queue(ByteBuffer record) {
+        if (pending.remaining() < record.remaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + record.remaining()));
+            pending = grown.put(pending.flip());
+        }
+        pending.put(record);
+    }
+
+    /**
+     * Appends the pending records to the journal and notifies the listener.
+     */
+    private void flush() {
+        if (pending.position() == 0) return;
+        try {
+            journal.append(pending.flip());
+            onRecords.run();
+        } catch (IOException e) {
+            // The records are lost; Discord.lua has no way to be told, so make the failure visible.
+            Logger.warning("Error appending ingested records to the journal: " + e.getMessage());
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Closes a connection.
+     *
+     * @param key The selection key of the connection.
+     */
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            Logger.fine("Error closing event ingestion connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops accepting records and closes all connections.
+     *
+     * @throws IOException If an I/O error occurs closing the selector.
+     */
+    @Override
+    public void close() throws IOException {
+        for (SelectionKey key : selector.keys()) {
+            if (key.channel() instanceof SocketChannel) {
+                close(key);
+            }
+        }
+        selector.close();
+    }
+
+    /**
+     * The read state of a single connection.
+     */
+    private static final class Connection {
+
+        // Bytes received but not yet forming a complete record.
+        private final ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORD_BYTES);
+    }
+}
@@ -0,0 +1,352 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.Model.SappEvent;
+import com.chalwk.util.Model.ServerState;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the append-only event journal written by Discord.lua.
+ * <p>
+ * Every record in the journal is either a {@code status} record carrying the latest server status or an
+ * {@code event} record carrying one notification, written as a line of JSON or as a compact binary frame; see
+ * {@link EventCodec}. The journal is never rewritten by the bot: each poll
+ * only reads the bytes appended since the last one, and a {@link DeliveryLedger} records which events Discord has
+ * confirmed. After a restart reading resumes at the oldest unconfirmed event, so no event is lost.
+ * <p>
+ * Once everything has been delivered and the journal has grown past {@link #ROTATE_THRESHOLD}, it is renamed aside,
+ * drained and deleted. Discord.lua then starts a fresh journal on its next write, beginning with a status record.
+ * <p>
+ * Records pushed over the {@link EventIngestServer} socket are {@linkplain #append(ByteBuffer) appended} by the bot
+ * itself, so they are consumed, acknowledged and rotated exactly like records written by Discord.lua.
+ */
+public class EventJournal {
+
+    public static final String JOURNAL_FILE = "halo-events.jsonl";
+
+    // Suffix given to the journal while it is being rotated out.
+    private static final String ROTATED_SUFFIX = ".1";
+
+    // Size in bytes a fully consumed journal must reach before it is rotated.
+    private static final long ROTATE_THRESHOLD = 1024 * 1024;
+
+    // The most bytes a single poll reads, so a large backlog is worked through in bounded steps.
+    private static final int MAX_READ_BYTES = 4 * 1024 * 1024;
+
+    // The latest state of each server, keyed by server ID.
+    private final Map<String, ServerState> statuses = new ConcurrentHashMap<>();
+
+    // Decodes both record formats and holds the templates binary records refer to.
+    private final EventCodec codec = new EventCodec();
+
+    private final Path journal;
+    private final Path rotated;
+
+    // Tracks which events have been delivered and checkpoints the read position.
+    private final DeliveryLedger ledger;
+
+    // Byte offset of the first unread record in the journal.
+    private long offset;
+
+    // Size and modification time of the journal when it was last read.
+    private FileIO.FileStamp lastStamp = FileIO.FileStamp.MISSING;
+
+    // Whether the last poll left records behind, and whether the next one must read even if the file is unchanged.
+    private boolean backlog;
+    private boolean carryOver;
+
+    /**
+     * Opens the journal, restores the committed offset and replays the status records that precede it.
+     *
+     * @throws IOException If an I/O error occurs reading the journal or the checkpoint.
+     */
+    public EventJournal() throws IOException {
+        this.journal = FileIO.getFilePath(JOURNAL_FILE);
+        this.rotated = journal.resolveSibling(JOURNAL_FILE + ROTATED_SUFFIX);
+        this.ledger = new DeliveryLedger();
+        this.offset = ledger.getCommitted();
+        replayStatuses();
+    }
+
+    /**
+     * Gets the latest known state of every server that has written to the journal.
+     *
+     * @return A map of server IDs to their states.
+     */
+    public Map<String, ServerState> getStatuses() {
+        return statuses;
+    }
+
+    /**
+     * Reads the complete records appended since the last poll, up to a budget of event records. Status records are
+     * folded into {@link #getStatuses()} and do not count towards the budget; event records are returned in journal
+     * order and stay pending until they are {@linkplain #acknowledge(long) acknowledged}. Events delivered before a
+     * restart are skipped. Anything beyond the budget is left in the journal for the next poll, see
+     * {@link #hasBacklog()}.
+     *
+     * @param maxEvents The maximum number of event records to return.
+     * @return The event records read by this poll.
+     * @throws IOException If an I/O error occurs reading the journal.
+     */
+    public synchronized List<SappEvent> poll(int maxEvents) throws IOException {
+        List<SappEvent> events = new ArrayList<>();
+        backlog = false;
+
+        // A rotation interrupted by a restart leaves the old journal behind; finish draining it first.
+        if (Files.exists(rotated) && !drainRotated(events, maxEvents)) {
+            backlog = true;
+            return events;
+        }
+
+        // Skip the read entirely if the journal has not changed since the last poll and nothing was left over.
+        FileIO.FileStamp stamp = FileIO.getFileStamp(journal);
+        if (stamp.equals(lastStamp) && !carryOver) {
+            return events;
+        }
+        lastStamp = stamp;
+
+        long size = read(journal, events, maxEvents);
+        if (!backlog && offset >= ROTATE_THRESHOLD && offset == size && ledger.isSettled()) {
+            rotate(events, maxEvents);
+        }
+        carryOver = backlog;
+        return events;
+    }
+
+    /**
+     * Appends complete records to the journal. A fresh journal is started with the latest known status of every
+     * server and every known binary template, as Discord.lua does, so both can still be replayed after a rotation.
+     *
+     * @param records The records to append, each a line of JSON or a binary frame.
+     * @throws IOException If an I/O error occurs writing the journal.
+     */
+    public synchronized void append(ByteBuffer records) throws IOException {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            if (channel.size() == 0 && !statuses.isEmpty()) {
+                StringBuilder lines = new StringBuilder();
+                statuses.values().forEach(state -> lines.append(state.toJSON()).append('\n'));
+                write(channel, ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+                write(channel, ByteBuffer.wrap(codec.encodeTemplates()));
+            }
+            write(channel, records);
+        }
+    }
+
+    /**
+     * Writes a buffer to a channel in full.
+     *
+     * @param channel The channel to write to.
+     * @param buffer  The bytes to write, from the buffer's position to its limit.
+     * @throws IOException If an I/O error occurs writing the channel.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Records that an event has been delivered to Discord.
+     *
+     * @param sequence The sequence number of the event.
+     */
+    public void acknowledge(long sequence) {
+        ledger.acknowledge(sequence);
+    }
+
+    /**
+     * Checks whether the last poll stopped early because it ran out of budget.
+     *
+     * @return true if there are records waiting to be read, false otherwise.
+     */
+    public synchronized boolean hasBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Renames the fully delivered journal aside, reads anything appended during the rename and deletes it.
+     *
+     * @param events    The list to add any late event records to.
+     * @param maxEvents The maximum number of event records the list may hold.
+     */
+    private void rotate(List<SappEvent> events, int maxEvents) {
+        try {
+            Files.move(journal, rotated);
+        } catch (IOException e) {
+            // The game server may hold the journal open; try again on a later poll.
+            Logger.fine("Journal rotation deferred: " + e.getMessage());
+            return;
+        }
+        backlog = !drainRotated(events, maxEvents);
+    }
+
+    /**
+     * Reads the remainder of a rotated journal. Once it has been read to the end and all its events have been
+     * delivered, it is deleted and the offset is reset for the fresh journal.
+     *
+     * @param events    The list to add the remaining event records to.
+     * @param maxEvents The maximum number of event records the list may hold.
+     * @return true if the rotated journal was fully drained, false if records are left over or still pending.
+     */
+    private boolean drainRotated(List<SappEvent> events, int maxEvents) {
+        try {
+            long size = read(rotated, events, maxEvents);
+            if (backlog || offset < size || !ledger.isSettled()) {
+                return false;
+            }
+            // Checkpoint the fresh start before the file it replaces goes, so a crash cannot leave an offset into a
+            // deleted journal to be applied to the fresh one. A crash before the delete only sends the drained file
+            // again.
+            offset = 0;
+            ledger.reset();
+            WriteBehind.flush();
+            try {
+                Files.deleteIfExists(rotated);
+            } catch (IOException e) {
+                // Still held open elsewhere; go back to its end and try again on a later poll.
+                offset = size;
+                ledger.advance(size);
+                WriteBehind.flush();
+                throw e;
+            }
+            return true;
+        } catch (IOException e) {
+            Logger.warning("Error draining rotated journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reads the complete records of a journal file from the current offset onwards, stopping once the list holds
+     * {@code maxEvents} event records or {@link #MAX_READ_BYTES} have been read.
+     *
+     * @param file      The journal file to read.
+     * @param events    The list to add event records to.
+     * @param maxEvents The maximum number of event records the list may hold.
+     * @return The size of the file at the time it was read.
+     * @throws IOException If an I/O error occurs reading the file.
+     */
+    private long read(Path file, List<SappEvent> events, int maxEvents) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < offset) {
+                // The journal was replaced behind our back; start again from the beginning.
+                Logger.warning("Journal is shorter than the stored offset, restarting from the beginning.");
+                offset = 0;
+                ledger.reset();
+            }
+            if (size == offset || events.size() >= maxEvents) {
+                backlog = size > offset;
+                return size;
+            }
+
+            int length = (int) Math.min(size - offset, MAX_READ_BYTES);
+            ByteBuffer region = FileIO.readRegion(channel, offset, length);
+            int consumed = parseRecords(region, offset, events, maxEvents);
+
+            if (consumed == 0 && length == MAX_READ_BYTES) {
+                // A single record larger than the read window can never complete; skip past it.
+                Logger.warning("Skipping oversized journal record at offset " + offset);
+                consumed = length;
+            }
+            if (consumed > 0) {
+                offset += consumed;
+                ledger.advance(offset);
+            }
+
+            // More records are waiting if the budget or the read window cut this read short.
+            backlog = offset < size && (events.size() >= maxEvents || length == MAX_READ_BYTES);
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Parses the complete records in the given region one at a time, straight from its bytes, until the list holds
+     * {@code maxEvents} event records. A trailing record that is not complete is still being written and is left for
+     * the next poll. Each event is tracked as pending in the ledger, unless it was delivered before a restart.
+     *
+     * @param region    The bytes to parse, from the buffer's position to its limit.
+     * @param position  The journal offset of the region's first byte.
+     * @param events    The list to add event records to, or null to skip event records.
+     * @param maxEvents The maximum number of event records the list may hold.
+     * @return The number of bytes consumed, ending just after the last consumed record.
+     */
+    private int parseRecords(ByteBuffer region, long position, List<SappEvent> events, int maxEvents) {
+        int base = region.position();
+        int start = base;
+        int end;
+        while (start < region.limit() && (end = EventCodec.recordEnd(region, start)) >= 0) {
+            ByteBuffer bytes = region.duplicate().position(start).limit(end);
+            long sequence = position + (start - base);
+            start = end;
+            if (isBlank(bytes)) continue;
+
+            try {
+                JSONObject record = codec.decode(bytes);
+                if (record == null) continue;
+
+                String type = record.optString("type");
+                if (type.equals("status")) {
+                    ServerState state = ServerState.from(record);
+                    statuses.put(state.serverID(), state);
+                } else if (type.equals("event") && events != null && !ledger.isDelivered(sequence)) {
+                    events.add(SappEvent.from(sequence, record));
+                    ledger.track(sequence);
+                    if (events.size() >= maxEvents) break;
+                }
+            } catch (JSONException | IllegalArgumentException e) {
+                Logger.warning("Skipping malformed journal record: " + e.getMessage());
+            }
+        }
+        return start - base;
+    }
+
+    /**
+     * Checks whether a line holds nothing but whitespace, such as the carriage return of a Windows line ending.
+     *
+     * @param line The line to check.
+     * @return true if the line is blank, false otherwise.
+     */
+    private static boolean isBlank(ByteBuffer line) {
+        for (int i = line.position(); i < line.limit(); i++) {
+            if (!Character.isWhitespace(line.get(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the latest server statuses and binary templates from the already consumed part of the journal.
+     *
+     * @throws IOException If an I/O error occurs reading the journal.
+     */
+    private void replayStatuses() throws IOException {
+        if (offset == 0 || !Files.exists(journal)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            int length = Math.toIntExact(Math.min(offset, channel.size()));
+            parseRecords(FileIO.readRegion(channel, 0, length), 0, null, 0);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the threads the bot's blocking work runs on.
+ * <p>
+ * By default everything runs on platform threads. Setting {@code "executionMode": "virtual"} in settings.json runs
+ * the monitor, the journal watcher, Discord deliveries and slash commands on virtual threads instead, and lets
+ * deliveries block on {@code complete()} with their concurrency bounded per Discord route by a {@link RouteLimiter}.
+ * Virtual threads need a Java 21 or later runtime; the bot is built for Java 17, so they are looked up reflectively
+ * and the platform mode is used if they are not available.
+ */
+public final class Execution {
+
+    // Whether virtual threads were requested and are available.
+    private static final boolean VIRTUAL;
+
+    // Creates virtual threads, or null in platform mode.
+    private static final ThreadFactory VIRTUAL_FACTORY;
+
+    static {
+        ThreadFactory factory = null;
+        if (Settings.getString("executionMode", "platform").equalsIgnoreCase("virtual")) {
+            try {
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+                Object named = builder.getMethod("name", String.class, long.class).invoke(ofVirtual, "virtual-", 0L);
+                factory = (ThreadFactory) builder.getMethod("factory").invoke(named);
+            } catch (ReflectiveOperationException e) {
+                Logger.warning("Virtual threads require Java 21 or later, using platform threads.");
+            }
+        }
+        VIRTUAL_FACTORY = factory;
+        VIRTUAL = factory != null;
+    }
+
+    private Execution() {
+    }
+
+    /**
+     * Checks whether blocking work runs on virtual threads.
+     *
+     * @return true in virtual mode, false in platform mode.
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    /**
+     * Creates a thread factory for long-running bot threads.
+     *
+     * @param name   The name given to the threads; a sequence number is appended if more than one is created.
+     * @param daemon Whether platform threads should be daemon threads. Virtual threads always are.
+     * @return A factory of virtual threads in virtual mode, otherwise of platform threads.
+     */
+    public static ThreadFactory threadFactory(String name, boolean daemon) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = VIRTUAL ? VIRTUAL_FACTORY.newThread(task) : new Thread(task);
+            int number = count.getAndIncrement();
+            thread.setName(number == 0 ? name : name + "-" + number);
+            if (!VIRTUAL) {
+                thread.setDaemon(daemon);
+            }
+            return thread;
+        };
+    }
+
+    /**
+     * Starts a long-running daemon thread.
+     *
+     * @param name The name of the thread.
+     * @param task The task the thread runs.
+     */
+    public static void startThread(String name, Runnable task) {
+        threadFactory(name, true).newThread(task).start();
+    }
+
+    /**
+     * Creates an executor for blocking tasks: one virtual thread per task in virtual mode, otherwise a fixed pool of
+     * daemon platform threads.
+     *
+     * @param name            The name given to the threads.
+     * @param platformThreads The size of the platform thread pool.
+     * @return The executor.
+     */
+    public static ExecutorService newBlockingExecutor(String name, int platformThreads) {
+        if (VIRTUAL) {
+            try {
+                ThreadFactory factory = threadFactory(name, true);
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                Logger.warning("Cannot create a virtual thread executor, using platform threads: " + e.getMessage());
+            }
+        }
+        return Executors.newFixedThreadPool(platformThreads, threadFactory(name, true));
+    }
+}
@@ -1,16 +1,20 @@
 package com.chalwk.util;
 
-import com.chalwk.util.Logging.Logger;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 
 public class FileIO {
 
+    // Per-thread buffer reused for every region read.
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(8 * 1024));
+
     // Path to the program's directory.
     static String programPath = getProgramPath();
 
@@ -35,7 +39,7 @@ public class FileIO {
      * @param fileName The name of the file.
      * @return The Path object for the specified file.
      */
-    private static Path getFilePath(String fileName) {
+    public static Path getFilePath(String fileName) {
         return Paths.get(programPath, fileName);
     }
 
@@ -58,16 +62,94 @@ public class FileIO {
     }
 
     /**
-     * Saves a JSONObject to a file.
+     * Gets the size and modification time of a file without reading it.
+     *
+     * @param filePath The path of the file.
+     * @return The FileStamp of the file, or {@link FileStamp#MISSING} if it does not exist.
+     * @throws IOException If an I/O error occurs reading the file attributes.
+     */
+    public static FileStamp getFileStamp(Path filePath) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (NoSuchFileException e) {
+            return FileStamp.MISSING;
+        }
+    }
+
+    /**
+     * Gets the size and modification time of a file in the program's directory without reading it.
+     *
+     * @param fileName The name of the file.
+     * @return The FileStamp of the file, or {@link FileStamp#MISSING} if it does not exist.
+     * @throws IOException If an I/O error occurs reading the file attributes.
+     */
+    public static FileStamp getFileStamp(String fileName) throws IOException {
+        return getFileStamp(getFilePath(fileName));
+    }
+
+    /**
+     * Reads a region of a file into a read-only buffer without decoding it.
+     * The region is copied into a per-thread buffer that is reused by the next call on the same thread, so the
+     * returned buffer must be consumed before then. Regions are never memory-mapped: a mapping stays open until it
+     * is garbage collected, and on Windows an open mapping stops the file from being renamed or deleted, which would
+     * block the rotation of the event journal.
+     *
+     * @param channel  The channel to read from.
+     * @param position The file position the region starts at.
+     * @param length   The length of the region in bytes.
+     * @return A buffer positioned at the start of the region and limited to its end.
+     * @throws IOException If an I/O error occurs reading the file.
+     */
+    public static ByteBuffer readRegion(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = SCRATCH.get();
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            SCRATCH.set(buffer);
+        }
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // Keep reading until the region is full.
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * Saves a JSONObject to a file in the background. The write is coalesced with later saves of the same file and
+     * replaces the file atomically; see {@link WriteBehind}. The object must not be modified after it has been saved.
      *
      * @param jsonObject The JSONObject to save.
      * @param fileName   The name of the file to save the JSONObject to.
      */
     public static void saveJSONObjectToFile(JSONObject jsonObject, String fileName) {
+        WriteBehind.submit(fileName, jsonObject);
+    }
+
+    /**
+     * Replaces the content of a file atomically: the content is written to a temporary file next to it, which is
+     * then renamed over the original. Readers and crashes see either the old or the new content, never a mix.
+     *
+     * @param path    The file to replace.
+     * @param content The new content.
+     * @param force   Whether to force the content to disk before the rename.
+     * @throws IOException If an I/O error occurs writing or renaming the file.
+     */
+    public static void writeAtomically(Path path, byte[] content, boolean force) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                channel.force(true);
+            }
+        }
         try {
-            Files.writeString(getFilePath(fileName), jsonObject.toString(4), StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            Logger.info("Error saving JSONObject to file");
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -79,7 +161,27 @@ public class FileIO {
      * @throws IOException If an I/O error occurs reading from the file.
      */
     public static JSONObject getJSONObjectFromFile(String fileName) throws IOException {
-        String content = readFile(fileName);
-        return content.isEmpty() ? new JSONObject() : new JSONObject(content);
+        Path filePath = getFilePath(fileName);
+        if (!Files.exists(filePath)) {
+            Files.createFile(filePath);
+        }
+
+        // Parse straight from the file's bytes rather than decoding them into a String first.
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer content = readRegion(channel, 0, Math.toIntExact(channel.size()));
+            return content.hasRemaining() ? new JSONObject(new JSONTokener(new ByteBufferInputStream(content))) : new JSONObject();
+        }
+    }
+
+    /**
+     * The size and modification time of a file, used to tell cheaply whether it changed since it was last read.
+     *
+     * @param size         The size of the file in bytes.
+     * @param lastModified The modification time of the file, in milliseconds since the epoch.
+     */
+    public record FileStamp(long size, long lastModified) {
+
+        // Stamp of a file that does not exist.
+        public static final FileStamp MISSING = new FileStamp(-1, -1);
     }
 }
\ No newline at end of file
@@ -3,39 +3,22 @@
 
 package com.chalwk.util;
 
-import com.chalwk.util.Enums.ColorName;
+import com.chalwk.util.Model.StatusView;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
-import net.dv8tion.jda.api.exceptions.ErrorResponseException;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import java.awt.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 
 public class Helpers {
 
     public static final String MESSAGE_ID_FILE = "message-ids.json";
-    public static final String HALO_EVENTS_FILE = "halo-events.json";
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy | HH:mm:ss");
 
-    /**
-     * Checks if a message with the specified ID exists in the given text channel.
-     *
-     * @param channel   The text channel to check for the message.
-     * @param messageID The ID of the message to check.
-     * @return true if the message exists, false otherwise.
-     */
-    static boolean messageExists(TextChannel channel, String messageID) {
-        try {
-            return channel.retrieveMessageById(messageID).complete() != null;
-        } catch (ErrorResponseException e) {
-            return false;
-        }
-    }
-
     /**
      * Gets the current timestamp formatted as "dd-MM-yyyy | HH:mm:ss".
      *
@@ -46,51 +29,36 @@ public class Helpers {
     }
 
     /**
-     * Creates an EmbedBuilder message from the provided JSON data.
+     * Creates an EmbedBuilder message from a server status.
      *
-     * @param data The JSON object containing the data for the embed message.
+     * @param status The server status.
      * @return An EmbedBuilder object with the specified title, description, color, and fields.
      */
-    static EmbedBuilder createEmbedMessage(JSONObject data) {
-
-        String title = data.optString("title", "N/A");
-        String description = data.optString("description", "N/A");
-        String colorName = data.optString("color", "0x00FF00");
-
-        Color color = ColorName.fromName(colorName);
-        String timestamp = getTimestamp();
-
+    static EmbedBuilder createEmbedMessage(StatusView status) {
         EmbedBuilder embed = new EmbedBuilder();
-        embed.setTitle(title)
-                .setDescription(description)
-                .setColor(color)
-                .setFooter("Last updated: " + timestamp, null);
+        embed.setTitle(status.title())
+                .setDescription(status.description())
+                .setColor(status.color())
+                .setFooter("Last updated: " + getTimestamp(), null);
 
-        JSONArray fields = data.optJSONArray("fields");
-        if (fields != null) {
-            for (Object o : fields) {
-                JSONObject field = (JSONObject) o;
-                String fieldName = field.optString("name", "N/A");
-                String fieldValue = field.optString("value", "N/A");
-                boolean inline = field.optBoolean("inline", false);
-                embed.addField(fieldName, fieldValue, inline);
-            }
+        for (StatusView.Field field : status.fields()) {
+            embed.addField(field.name(), field.value(), field.inline());
         }
 
         return embed;
     }
 
     /**
-     * Retrieves a TextChannel by its ID from the specified guild.
+     * Retrieves a TextChannel by its ID from whichever of the specified guilds contains it.
      *
      * @param channelID The ID of the text channel to retrieve.
-     * @param guild     The guild (server) from which to retrieve the text channel.
+     * @param guilds    The guilds (servers) in which to look for the text channel.
      * @param serverID  The ID of the server for logging purposes.
      * @return The TextChannel object corresponding to the specified ID.
-     * @throws IllegalArgumentException if the text channel is not found in the guild.
+     * @throws IllegalArgumentException if the text channel is not found in any of the guilds.
      */
-    private static TextChannel getTextChannel(String channelID, Guild guild, String serverID) {
-        TextChannel channel = guild.getTextChannelById(channelID);
+    static TextChannel getTextChannel(String channelID, Collection<Guild> guilds, String serverID) {
+        TextChannel channel = findTextChannel(channelID, guilds);
         if (channel == null) {
             throw new IllegalArgumentException("[getTextChannel()] Channel not found: [" + channelID + "] (Server ID: " + serverID + ")");
         }
@@ -98,29 +66,46 @@ public class Helpers {
     }
 
     /**
-     * Sends a message to a specified text channel in a guild.
+     * Looks up a TextChannel by its ID in whichever of the specified guilds contains it.
      *
-     * @param title       The title of the message.
-     * @param description The description of the message.
-     * @param colorName   The name of the color to be used for the message embed.
-     * @param channelID   The ID of the text channel where the message will be sent.
-     * @param guild       The guild (server) where the text channel is located.
-     * @param serverID    The ID of the server for logging purposes.
-     * @throws IllegalArgumentException if there is an error sending the message.
+     * @param channelID The ID of the text channel to look up.
+     * @param guilds    The guilds (servers) in which to look for the text channel.
+     * @return The TextChannel object corresponding to the specified ID, or null if none of the guilds contains it.
      */
-    static void sendMessage(String title, String description, String colorName, String channelID, Guild guild, String serverID) {
-        TextChannel channel = getTextChannel(channelID, guild, serverID);
+    static TextChannel findTextChannel(String channelID, Collection<Guild> guilds) {
+        for (Guild guild : guilds) {
+            TextChannel channel = guild.getTextChannelById(channelID);
+            if (channel != null) {
+                return channel;
+            }
+        }
+        return null;
+    }
 
-        Color color = ColorName.fromName(colorName);
-        EmbedBuilder embedBuilder = new EmbedBuilder()
-                .setTitle(title)
-                .setDescription(description)
-                .setColor(color);
+    /**
+     * Creates the embed for an event notification, truncating the title and description to Discord's limits.
+     *
+     * @param title       The title of the notification.
+     * @param description The description of the notification.
+     * @param color       The color of the embed.
+     * @return The notification embed.
+     */
+    static MessageEmbed createEventEmbed(String title, String description, Color color) {
+        return new EmbedBuilder()
+                .setTitle(truncate(title, MessageEmbed.TITLE_MAX_LENGTH))
+                .setDescription(truncate(description, MessageEmbed.DESCRIPTION_MAX_LENGTH))
+                .setColor(color)
+                .build();
+    }
 
-        try {
-            channel.sendMessageEmbeds(embedBuilder.build()).queue();
-        } catch (Exception e) {
-            throw new IllegalArgumentException("[sendMessage()] Error sending message: " + e.getMessage());
-        }
+    /**
+     * Truncates a string to a maximum length, marking the cut with an ellipsis.
+     *
+     * @param text      The string to truncate.
+     * @param maxLength The maximum length of the result.
+     * @return The string itself if it fits, otherwise its truncated form.
+     */
+    static String truncate(String text, int maxLength) {
+        return text.length() <= maxLength ? text : text.substring(0, maxLength - 1) + "…";
     }
 }
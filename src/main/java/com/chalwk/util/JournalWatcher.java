@@ -0,0 +1,105 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the program directory and notifies listeners when the event journal changes.
+ * <p>
+ * Bursts of file system events (a join during a map change writes several records in a row) are debounced into a
+ * single notification: after the first change, further changes are absorbed until the journal has been quiet for
+ * {@link #DEBOUNCE_MILLIS}, or {@link #MAX_DELAY_MILLIS} has passed since the first one.
+ */
+public class JournalWatcher implements Runnable, AutoCloseable {
+
+    // How long the journal must stay quiet before listeners are notified.
+    private static final long DEBOUNCE_MILLIS = 25;
+
+    // The longest a notification can be held back by a continuous stream of changes.
+    private static final long MAX_DELAY_MILLIS = 250;
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+    private final Path journalName;
+
+    /**
+     * Registers a watch on the directory containing the event journal.
+     *
+     * @throws IOException If the file system does not support watching or the directory cannot be registered.
+     */
+    public JournalWatcher() throws IOException {
+        Path journal = FileIO.getFilePath(EventJournal.JOURNAL_FILE);
+        this.journalName = journal.getFileName();
+        this.watchService = journal.getFileSystem().newWatchService();
+        journal.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+    }
+
+    /**
+     * Adds a listener to run whenever the journal changes. Listeners run on the watcher thread and should only
+     * hand work off to another thread.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts watching on a daemon thread.
+     */
+    public void start() {
+        Execution.startThread("journal-watcher", this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                if (!drain(watchService.take())) continue;
+
+                // Absorb the rest of the burst before waking the listeners.
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MILLIS);
+                WatchKey key;
+                while (System.nanoTime() < deadline
+                        && (key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(key);
+                }
+
+                listeners.forEach(Runnable::run);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Logger.fine("Journal watcher stopped.");
+        }
+    }
+
+    /**
+     * Consumes the events of a watch key and re-arms it.
+     *
+     * @param key The signalled watch key.
+     * @return true if any of the events concern the journal, false otherwise.
+     */
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // An overflow means events were lost, so assume the journal changed.
+            changed |= event.kind() == OVERFLOW || journalName.equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -31,8 +31,8 @@ public class GuildReady extends ListenerAdapter {
         System.out.println(logo);
 
         try {
-            // Initialize the ServerMonitor with the event.
-            new ServerMonitor(event);
+            // Register the guild with the shared ServerMonitor, starting it on the first guild.
+            ServerMonitor.getInstance().register(event.getGuild());
         } catch (IOException e) {
             // Throw a RuntimeException if an IOException occurs.
             throw new RuntimeException(e);
@@ -0,0 +1,32 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util.Listeners;
+
+import com.chalwk.util.Logging.Logger;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.jetbrains.annotations.NotNull;
+
+public class ShardReady extends ListenerAdapter {
+
+    /**
+     * Logs what a shard has cached and the heap in use once all of its guilds have loaded, to compare against the
+     * cache profile summary logged at startup.
+     *
+     * @param event The ReadyEvent object containing event details.
+     */
+    @Override
+    public void onReady(@NotNull ReadyEvent event) {
+        JDA jda = event.getJDA();
+        Runtime runtime = Runtime.getRuntime();
+        Logger.info("Shard {} ready", jda.getShardInfo().getShardString(),
+                Logger.field("guilds", event.getGuildTotalCount()),
+                Logger.field("cachedUsers", jda.getUserCache().size()),
+                Logger.field("cachedMembers", jda.getGuildCache().stream()
+                        .mapToLong(guild -> guild.getMemberCache().size()).sum()),
+                Logger.field("heapUsedMB", (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)),
+                Logger.field("heapMaxMB", runtime.maxMemory() / (1024 * 1024)));
+    }
+}
@@ -0,0 +1,161 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free queue of log records with many producers and a single consumer.
+ * <p>
+ * The records live in preallocated parallel arrays, so publishing allocates nothing. Every slot has a sequence number
+ * telling whether it is free for the producer of a given position or holds a record for the consumer, so producers
+ * only contend on a compare-and-set of the tail and never on a lock. When the ring is full, records are dropped and
+ * counted rather than blocking the logging thread. The consumer parks while the ring is empty and the producer that
+ * publishes the next record wakes it, so an idle ring costs no CPU.
+ */
+final class LogRing {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] times;
+    private final LogLevel[] levels;
+    private final String[] threads;
+    private final String[] messages;
+    private final Object[][] arguments;
+
+    // The next position producers claim.
+    private final AtomicLong tail = new AtomicLong();
+
+    // The next position the consumer reads; only touched by the consumer.
+    private long head;
+
+    // Records dropped because the ring was full.
+    private final AtomicLong dropped = new AtomicLong();
+
+    // The consumer thread, and whether it is parked or about to park waiting for a record.
+    private volatile Thread consumer;
+    private volatile boolean waiting;
+
+    /**
+     * Creates an empty ring.
+     *
+     * @param capacity The number of slots; must be a power of two.
+     */
+    LogRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.times = new long[capacity];
+        this.levels = new LogLevel[capacity];
+        this.threads = new String[capacity];
+        this.messages = new String[capacity];
+        this.arguments = new Object[capacity][];
+    }
+
+    /**
+     * Publishes a record.
+     *
+     * @param time      The time of the record, in milliseconds since the epoch.
+     * @param level     The level of the record.
+     * @param thread    The name of the logging thread.
+     * @param message   The message, or its format if there are arguments.
+     * @param arguments The format arguments and fields, or null.
+     * @return true if the record was queued, false if the ring was full and it was dropped.
+     */
+    boolean offer(long time, LogLevel level, String thread, String message, Object[] arguments) {
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        times[slot] = time;
+        levels[slot] = level;
+        threads[slot] = thread;
+        messages[slot] = message;
+        this.arguments[slot] = arguments;
+        sequences.set(slot, position + 1);
+        if (waiting) {
+            waiting = false;
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Parks the consumer until a record is published, unless one already has been. May return early, so the caller
+     * must poll again. Must only be called by the consumer.
+     */
+    void await() {
+        consumer = Thread.currentThread();
+        // Announce the wait before checking for a record: a producer either sees the announcement and unparks the
+        // consumer, or publishes before the check and the consumer does not park.
+        waiting = true;
+        if (sequences.get((int) head & mask) != head + 1) {
+            LockSupport.park(this);
+        }
+        waiting = false;
+    }
+
+    /**
+     * Takes the oldest record, if it has been fully published. Must only be called by the consumer.
+     *
+     * @param sink Receives the record.
+     * @return true if a record was taken, false if the ring is empty.
+     */
+    boolean poll(Sink sink) {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) {
+            return false;
+        }
+        sink.accept(times[slot], levels[slot], threads[slot], messages[slot], arguments[slot]);
+        // Release the references so the ring does not keep them alive.
+        threads[slot] = null;
+        messages[slot] = null;
+        arguments[slot] = null;
+        sequences.set(slot, head + mask + 1);
+        head++;
+        return true;
+    }
+
+    /**
+     * Gets and resets the number of records dropped because the ring was full.
+     *
+     * @return The number of records dropped since the last call.
+     */
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+
+    /**
+     * Receives the records taken from the ring.
+     */
+    @FunctionalInterface
+    interface Sink {
+
+        /**
+         * Handles a record.
+         *
+         * @param time      The time of the record, in milliseconds since the epoch.
+         * @param level     The level of the record.
+         * @param thread    The name of the logging thread.
+         * @param message   The message, or its format if there are arguments.
+         * @param arguments The format arguments and fields, or null.
+         */
+        void accept(long time, LogLevel level, String thread, String message, Object[] arguments);
+    }
+}
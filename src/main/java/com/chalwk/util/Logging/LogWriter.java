@@ -0,0 +1,279 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Logging;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats and writes the records of a {@link LogRing} on a background thread.
+ * <p>
+ * Formatting happens here rather than on the logging thread: a record's {@code {}} placeholders are replaced with its
+ * arguments, and its {@link Logger.Field}s are appended as {@code key=value} pairs. Records are written in batches to
+ * the console and, once {@link #setFile} has been called, to a file that is rolled over when it grows too large.
+ * While the ring is empty the writer thread sleeps until the next record is logged.
+ */
+final class LogWriter implements Runnable {
+
+    // The most records written in one batch.
+    private static final int BATCH_SIZE = 1024;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private final LogRing ring;
+    private final PrintStream console = System.err;
+
+    // Appends each record taken from the ring to the batch.
+    private final LogRing.Sink sink = this::append;
+
+    // The records of the current batch, formatted.
+    private final StringBuilder batch = new StringBuilder(16 * 1024);
+
+    // The log file, or null to only write to the console.
+    private RollingFile file;
+
+    /**
+     * Creates a writer for a ring.
+     *
+     * @param ring The ring to take records from.
+     */
+    LogWriter(LogRing ring) {
+        this.ring = ring;
+    }
+
+    /**
+     * Starts the writer thread, and drains the ring once more when the bot shuts down.
+     */
+    void start() {
+        Thread thread = new Thread(this, "log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "log-writer-shutdown"));
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            if (!drain()) {
+                ring.await();
+            }
+        }
+    }
+
+    /**
+     * Writes the records in the ring, up to one batch.
+     *
+     * @return true if anything was written, false if the ring was empty.
+     */
+    synchronized boolean drain() {
+        int count = 0;
+        while (count < BATCH_SIZE && ring.poll(sink)) {
+            count++;
+        }
+        long dropped = ring.takeDropped();
+        if (dropped > 0) {
+            batch.append(TIME_FORMAT.format(Instant.now())).append(" WARNING [log-writer] ")
+                    .append(dropped).append(" log messages dropped because the log buffer was full\n");
+        }
+        if (batch.length() == 0) {
+            return false;
+        }
+
+        String text = batch.toString();
+        batch.setLength(0);
+        console.print(text);
+        console.flush();
+        if (file != null) {
+            try {
+                file.write(text.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                console.println("Error writing the log file, logging to the console only: " + e.getMessage());
+                closeFile();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts writing to a log file as well as the console.
+     *
+     * @param path     The log file.
+     * @param maxBytes The size at which the file is rolled over.
+     * @param maxFiles The number of rolled over files to keep.
+     * @throws IOException If the file cannot be opened.
+     */
+    synchronized void setFile(Path path, long maxBytes, int maxFiles) throws IOException {
+        closeFile();
+        file = new RollingFile(path, maxBytes, maxFiles);
+    }
+
+    /**
+     * Writes everything still in the ring and closes the log file.
+     */
+    synchronized void close() {
+        while (drain()) {
+            // Keep writing until the ring is empty.
+        }
+        closeFile();
+    }
+
+    /**
+     * Closes the log file, if there is one.
+     */
+    private void closeFile() {
+        if (file == null) return;
+        try {
+            file.close();
+        } catch (IOException e) {
+            console.println("Error closing the log file: " + e.getMessage());
+        }
+        file = null;
+    }
+
+    /**
+     * Formats a record into the batch.
+     *
+     * @param time      The time of the record, in milliseconds since the epoch.
+     * @param level     The level of the record.
+     * @param thread    The name of the logging thread.
+     * @param message   The message, or its format if there are arguments.
+     * @param arguments The format arguments and fields, or null.
+     */
+    private void append(long time, LogLevel level, String thread, String message, Object[] arguments) {
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(time), batch);
+        batch.append(' ').append(level.name()).append(" [").append(thread).append("] ");
+        if (arguments == null) {
+            batch.append(message);
+        } else {
+            format(message, arguments);
+        }
+        batch.append('\n');
+    }
+
+    /**
+     * Formats a message, replacing each {@code {}} with the next argument that is not a field, then appending the
+     * fields.
+     *
+     * @param message   The message format.
+     * @param arguments The format arguments and fields.
+     */
+    private void format(String message, Object[] arguments) {
+        int next = 0;
+        int start = 0;
+        int placeholder;
+        while ((placeholder = message.indexOf("{}", start)) >= 0) {
+            while (next < arguments.length && arguments[next] instanceof Logger.Field) {
+                next++;
+            }
+            batch.append(message, start, placeholder);
+            batch.append(next < arguments.length ? String.valueOf(arguments[next++]) : "{}");
+            start = placeholder + 2;
+        }
+        batch.append(message, start, message.length());
+        for (Object argument : arguments) {
+            if (argument instanceof Logger.Field field) {
+                batch.append(' ').append(field.key()).append('=').append(field.value());
+            }
+        }
+    }
+
+    /**
+     * A log file that is rolled over to {@code name.1}, {@code name.2}, ... when it reaches its maximum size.
+     */
+    private static final class RollingFile {
+
+        private final Path path;
+        private final long maxBytes;
+        private final int maxFiles;
+        private OutputStream out;
+        private long size;
+
+        /**
+         * Opens a log file for appending.
+         *
+         * @param path     The log file.
+         * @param maxBytes The size at which the file is rolled over.
+         * @param maxFiles The number of rolled over files to keep; at least 1.
+         * @throws IOException If the file cannot be opened.
+         */
+        private RollingFile(Path path, long maxBytes, int maxFiles) throws IOException {
+            this.path = path;
+            this.maxBytes = maxBytes;
+            this.maxFiles = maxFiles;
+            open();
+        }
+
+        /**
+         * Appends to the file, rolling it over first if the bytes would take it past its maximum size.
+         *
+         * @param bytes The bytes to append.
+         * @throws IOException If an I/O error occurs.
+         */
+        private void write(byte[] bytes) throws IOException {
+            if (size > 0 && size + bytes.length > maxBytes) {
+                roll();
+            }
+            out.write(bytes);
+            out.flush();
+            size += bytes.length;
+        }
+
+        /**
+         * Closes the file and shifts it and the older files along, dropping the oldest.
+         *
+         * @throws IOException If an I/O error occurs.
+         */
+        private void roll() throws IOException {
+            out.close();
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                Path older = rolled(i);
+                if (Files.exists(older)) {
+                    Files.move(older, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+            open();
+        }
+
+        /**
+         * Gets the path of a rolled over file.
+         *
+         * @param index The index of the file, 1 being the newest.
+         * @return The path.
+         */
+        private Path rolled(int index) {
+            return path.resolveSibling(path.getFileName() + "." + index);
+        }
+
+        /**
+         * Opens the file for appending.
+         *
+         * @throws IOException If the file cannot be opened.
+         */
+        private void open() throws IOException {
+            out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+            size = Files.size(path);
+        }
+
+        /**
+         * Closes the file.
+         *
+         * @throws IOException If an I/O error occurs.
+         */
+        private void close() throws IOException {
+            out.close();
+        }
+    }
+}
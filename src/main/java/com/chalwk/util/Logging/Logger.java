@@ -2,25 +2,65 @@
    See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
 package com.chalwk.util.Logging;
 
-import java.io.PrintStream;
-import java.util.Date;
+import com.chalwk.util.FileIO;
+import com.chalwk.util.Settings;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 /**
- * A simple logging utility that logs messages to the console.
+ * A simple logging utility that logs messages to the console and, optionally, a rolling log file.
  * This class provides various methods to log messages at different levels of severity.
- * The log messages are printed to the console with a timestamp.
+ * <p>
+ * Logging never blocks: records are queued on a lock-free ring buffer and formatted and written by a background
+ * thread. Messages that are expensive to build can be passed as a {@link Supplier}, or as a format with {@code {}}
+ * placeholders and arguments, so nothing is built when their level is disabled. {@link Field}s passed as arguments
+ * are appended as {@code key=value} pairs, e.g. {@code Logger.info("Event delivered", field("serverID", id))}.
+ * Arguments are formatted on the writer thread, so they must not be modified after they have been logged.
  */
 
 public class Logger {
 
-    // The PrintStream to which log messages will be written.
-    private static final PrintStream stream = System.err;
+    // The number of records the ring buffer holds before new ones are dropped; a power of two.
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final LogRing RING = new LogRing(BUFFER_SIZE);
+    private static final LogWriter WRITER = new LogWriter(RING);
 
-    // The current log level. Only messages at this level or higher will be logged.
-    private static LogLevel logLevel = LogLevel.WARNING;
+    // The current log level. Only messages at this level or more severe will be logged.
+    private static volatile LogLevel logLevel = LogLevel.INFO;
+
+    static {
+        WRITER.start();
+    }
 
     /**
-     * Sets the log level. Only messages at this level or higher will be logged.
+     * Applies the logging settings: {@code logLevel}, and {@code logFile} with {@code logMaxBytes} and
+     * {@code logMaxFiles} for the rolling log file. Called once at startup.
+     */
+    public static void configure() {
+        String level = Settings.getString("logLevel", logLevel.name());
+        try {
+            setLogLevel(LogLevel.valueOf(level.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            warning("Unknown log level " + level + ", using " + logLevel.name());
+        }
+
+        String file = Settings.getString("logFile", "");
+        if (!file.isEmpty()) {
+            long maxBytes = Math.max(1024, Settings.getLong("logMaxBytes", 10 * 1024 * 1024));
+            int maxFiles = Math.max(1, Settings.getInt("logMaxFiles", 5));
+            try {
+                WRITER.setFile(FileIO.getFilePath(file), maxBytes, maxFiles);
+            } catch (IOException e) {
+                warning("Cannot open log file " + file + ", logging to the console only: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sets the log level. Only messages at this level or more severe will be logged.
      *
      * @param level The log level to set.
      */
@@ -28,6 +68,28 @@ public class Logger {
         logLevel = level;
     }
 
+    /**
+     * Checks whether messages of a level are logged.
+     *
+     * @param level The log level.
+     * @return true if messages of the level are logged, false if they are discarded.
+     */
+    public static boolean isEnabled(LogLevel level) {
+        // Lower values are more severe.
+        return level.getValue() <= logLevel.getValue();
+    }
+
+    /**
+     * Creates a structured field, appended to the message as {@code key=value}.
+     *
+     * @param key   The name of the field.
+     * @param value The value of the field.
+     * @return The field.
+     */
+    public static Field field(String key, Object value) {
+        return new Field(key, value);
+    }
+
     /**
      * Logs a message at the specified log level.
      *
@@ -35,8 +97,34 @@ public class Logger {
      * @param message The message to log.
      */
     public static void log(LogLevel level, String message) {
-        if (level.getValue() >= logLevel.getValue()) {
-            log(level.name() + " - " + message);
+        if (isEnabled(level)) {
+            publish(level, message, null);
+        }
+    }
+
+    /**
+     * Logs a formatted message at the specified log level. Each {@code {}} in the format is replaced with the next
+     * argument that is not a {@link Field}; fields are appended as {@code key=value}.
+     *
+     * @param level     The log level of the message.
+     * @param format    The message format.
+     * @param arguments The format arguments and fields.
+     */
+    public static void log(LogLevel level, String format, Object... arguments) {
+        if (isEnabled(level)) {
+            publish(level, format, arguments);
+        }
+    }
+
+    /**
+     * Logs a lazily built message at the specified log level. The supplier is only called if the level is enabled.
+     *
+     * @param level   The log level of the message.
+     * @param message Builds the message to log.
+     */
+    public static void log(LogLevel level, Supplier<String> message) {
+        if (isEnabled(level)) {
+            publish(level, message.get(), null);
         }
     }
 
@@ -49,6 +137,16 @@ public class Logger {
         log(LogLevel.SEVERE, message);
     }
 
+    /**
+     * Logs a formatted severe message.
+     *
+     * @param format    The message format.
+     * @param arguments The format arguments and fields.
+     */
+    public static void severe(String format, Object... arguments) {
+        log(LogLevel.SEVERE, format, arguments);
+    }
+
     /**
      * Logs a warning message.
      *
@@ -58,6 +156,16 @@ public class Logger {
         log(LogLevel.WARNING, message);
     }
 
+    /**
+     * Logs a formatted warning message.
+     *
+     * @param format    The message format.
+     * @param arguments The format arguments and fields.
+     */
+    public static void warning(String format, Object... arguments) {
+        log(LogLevel.WARNING, format, arguments);
+    }
+
     /**
      * Logs an informational message.
      *
@@ -67,6 +175,16 @@ public class Logger {
         log(LogLevel.INFO, message);
     }
 
+    /**
+     * Logs a formatted informational message.
+     *
+     * @param format    The message format.
+     * @param arguments The format arguments and fields.
+     */
+    public static void info(String format, Object... arguments) {
+        log(LogLevel.INFO, format, arguments);
+    }
+
     /**
      * Logs a configuration message.
      *
@@ -85,6 +203,25 @@ public class Logger {
         log(LogLevel.FINE, message);
     }
 
+    /**
+     * Logs a formatted fine-grained informational message.
+     *
+     * @param format    The message format.
+     * @param arguments The format arguments and fields.
+     */
+    public static void fine(String format, Object... arguments) {
+        log(LogLevel.FINE, format, arguments);
+    }
+
+    /**
+     * Logs a lazily built fine-grained informational message.
+     *
+     * @param message Builds the message to log; only called if the level is enabled.
+     */
+    public static void fine(Supplier<String> message) {
+        log(LogLevel.FINE, message);
+    }
+
     /**
      * Logs a finer-grained informational message.
      *
@@ -104,11 +241,22 @@ public class Logger {
     }
 
     /**
-     * Logs a message to the console with a timestamp.
+     * Queues a record for the writer thread.
      *
-     * @param message The message to log.
+     * @param level     The log level of the message.
+     * @param message   The message, or its format if there are arguments.
+     * @param arguments The format arguments and fields, or null.
+     */
+    private static void publish(LogLevel level, String message, Object[] arguments) {
+        RING.offer(System.currentTimeMillis(), level, Thread.currentThread().getName(), message, arguments);
+    }
+
+    /**
+     * A structured key/value field of a log message.
+     *
+     * @param key   The name of the field.
+     * @param value The value of the field.
      */
-    private static void log(String message) {
-        stream.println(new Date() + " - " + message);
+    public record Field(String key, Object value) {
     }
 }
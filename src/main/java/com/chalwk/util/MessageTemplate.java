@@ -0,0 +1,141 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An event title or description from Discord.lua, compiled once into a list of segments.
+ * <p>
+ * Discord.lua sends the text of a template with its placeholders ({@code $playerName}, {@code $map}, ...) left in,
+ * together with the value of each placeholder, and the bot renders it. Compiling splits the text into literal
+ * segments and placeholder slots, so rendering an event is a single pass that appends segments and values to a
+ * reused {@code StringBuilder}. Where placeholders overlap, the longest one matching at a position wins, so one that is
+ * a prefix of another ({@code $player} and {@code $playerName}) cannot clobber it.
+ */
+public final class MessageTemplate {
+
+    // The builder every render on a thread appends to.
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    // The text the template was compiled from.
+    private final String source;
+
+    // The placeholder names, in the order their values are given.
+    private final String[] placeholders;
+
+    // The literal segments; there is always one more than there are slots, possibly empty.
+    private final String[] literals;
+
+    // The placeholder index of each slot, which is rendered between literals[i] and literals[i + 1].
+    private final int[] slots;
+
+    /**
+     * Creates a compiled template.
+     *
+     * @param source       The text the template was compiled from.
+     * @param placeholders The placeholder names.
+     * @param literals     The literal segments.
+     * @param slots        The placeholder index of each slot.
+     */
+    private MessageTemplate(String source, String[] placeholders, String[] literals, int[] slots) {
+        this.source = source;
+        this.placeholders = placeholders;
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * Compiles a text into a template.
+     *
+     * @param source       The text, with placeholders.
+     * @param placeholders The placeholder names, in the order their values will be given. Empty names are ignored.
+     * @return The compiled template.
+     */
+    public static MessageTemplate compile(String source, String[] placeholders) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < source.length()) {
+            int match = longestMatch(source, i, placeholders);
+            if (match < 0) {
+                i++;
+                continue;
+            }
+            literals.add(source.substring(literalStart, i));
+            slots.add(match);
+            i += placeholders[match].length();
+            literalStart = i;
+        }
+        literals.add(source.substring(literalStart));
+
+        int[] slotArray = new int[slots.size()];
+        for (int s = 0; s < slotArray.length; s++) {
+            slotArray[s] = slots.get(s);
+        }
+        return new MessageTemplate(source, placeholders.clone(), literals.toArray(String[]::new), slotArray);
+    }
+
+    /**
+     * Finds the longest placeholder starting at a position of a text.
+     *
+     * @param text         The text.
+     * @param position     The position.
+     * @param placeholders The placeholder names.
+     * @return The index of the longest matching placeholder, or -1 if none matches.
+     */
+    private static int longestMatch(String text, int position, String[] placeholders) {
+        int best = -1;
+        for (int p = 0; p < placeholders.length; p++) {
+            String name = placeholders[p];
+            if (!name.isEmpty() && text.startsWith(name, position)
+                    && (best < 0 || name.length() > placeholders[best].length())) {
+                best = p;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param values The placeholder values, in the order of {@link #placeholders()}. A placeholder without a value is
+     *               left in the text.
+     * @return The rendered text.
+     */
+    public String render(String[] values) {
+        if (slots.length == 0) {
+            return source;
+        }
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        builder.append(literals[0]);
+        for (int s = 0; s < slots.length; s++) {
+            int slot = slots[s];
+            builder.append(slot < values.length ? values[slot] : placeholders[slot]);
+            builder.append(literals[s + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Gets the text the template was compiled from.
+     *
+     * @return The text, with placeholders.
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Gets the placeholder names.
+     *
+     * @return The placeholder names, in the order their values are given. Must not be modified.
+     */
+    public String[] placeholders() {
+        return placeholders;
+    }
+}
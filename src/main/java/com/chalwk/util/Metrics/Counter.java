@@ -0,0 +1,39 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count. Increments are striped across cells, so threads counting at the same time do not
+ * contend.
+ */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Adds one.
+     */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Adds an amount.
+     *
+     * @param amount The amount to add; must not be negative.
+     */
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    /**
+     * Gets the count.
+     *
+     * @return The sum of everything added so far.
+     */
+    public long get() {
+        return value.sum();
+    }
+}
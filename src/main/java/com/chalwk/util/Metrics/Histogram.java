@@ -0,0 +1,147 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * <p>
+ * Values below {@link #SUB_BUCKETS} get a bucket each; above that, every power of two is split into
+ * {@link #SUB_BUCKETS} equal buckets, so a recorded value is known to within 1/16th (about 6%) whatever its
+ * magnitude. Recording is a bucket index computation and an atomic increment, without allocation or locking.
+ * Quantiles are computed from the buckets when the histogram is exported.
+ */
+public final class Histogram implements Metric {
+
+    // The number of bits of precision below the most significant bit.
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // Enough buckets for any non-negative long.
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * SUB_BUCKETS;
+
+    // The quantiles exported.
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String name;
+    private final String help;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param name The name of the metric, including its unit.
+     * @param help The description of the metric.
+     */
+    Histogram(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value The value; negative values are recorded as zero.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Gets the number of values recorded.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Estimates a quantile of the recorded values.
+     *
+     * @param quantile The quantile, between 0 and 1.
+     * @return The highest value of the bucket holding the quantile, capped at the largest value recorded, or 0 if
+     * nothing has been recorded.
+     */
+    public long quantile(double quantile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Gets the bucket of a value.
+     *
+     * @param value The value, not negative.
+     * @return The bucket index.
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (msb - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the highest value that falls into a bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The highest value of the bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int msb = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (1L << msb) | (sub << (msb - SUB_BITS));
+        return lower + (1L << (msb - SUB_BITS)) - 1;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void writePrometheus(StringBuilder out) {
+        Metrics.header(out, name, help, "summary");
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ").append(quantile(quantile)).append('\n');
+        }
+        out.append(name).append("_sum ").append(sum.sum()).append('\n');
+        out.append(name).append("_count ").append(count.sum()).append('\n');
+    }
+
+    @Override
+    public void snapshot(Map<String, Number> snapshot) {
+        snapshot.put(name + ".count", count.sum());
+        snapshot.put(name + ".p50", quantile(0.5));
+        snapshot.put(name + ".p99", quantile(0.99));
+        snapshot.put(name + ".max", max.get());
+    }
+}
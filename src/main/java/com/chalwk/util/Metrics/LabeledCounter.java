@@ -0,0 +1,61 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A family of counters distinguished by the value of a single label, e.g. one counter per server ID.
+ */
+public final class LabeledCounter implements Metric {
+
+    private final String name;
+    private final String help;
+    private final String label;
+
+    // The counter of each label value.
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty family.
+     *
+     * @param name  The name of the metric.
+     * @param help  The description of the metric.
+     * @param label The name of the label.
+     */
+    LabeledCounter(String name, String help, String label) {
+        this.name = name;
+        this.help = help;
+        this.label = label;
+    }
+
+    /**
+     * Gets the counter of a label value, creating it on first use.
+     *
+     * @param value The label value.
+     * @return The counter.
+     */
+    public Counter get(String value) {
+        Counter counter = counters.get(value);
+        return counter != null ? counter : counters.computeIfAbsent(value, key -> new Counter());
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void writePrometheus(StringBuilder out) {
+        Metrics.header(out, name, help, "counter");
+        new TreeMap<>(counters).forEach((value, counter) -> out.append(name).append('{').append(label).append("=\"")
+                .append(Metrics.escape(value)).append("\"} ").append(counter.get()).append('\n'));
+    }
+
+    @Override
+    public void snapshot(Map<String, Number> snapshot) {
+        counters.forEach((value, counter) -> snapshot.put(name + "." + value, counter.get()));
+    }
+}
@@ -0,0 +1,32 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Metrics;
+
+import java.util.Map;
+
+/**
+ * A named metric that can be exported.
+ */
+interface Metric {
+
+    /**
+     * Gets the name of the metric.
+     *
+     * @return The name, in Prometheus naming style.
+     */
+    String name();
+
+    /**
+     * Appends the metric in the Prometheus text exposition format, including its HELP and TYPE lines.
+     *
+     * @param out The text to append to.
+     */
+    void writePrometheus(StringBuilder out);
+
+    /**
+     * Adds the current values of the metric to a snapshot, for JMX.
+     *
+     * @param snapshot The snapshot, keyed by attribute name.
+     */
+    void snapshot(Map<String, Number> snapshot);
+}
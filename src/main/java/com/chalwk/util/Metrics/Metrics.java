@@ -0,0 +1,220 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Metrics;
+
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.Settings;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * The process-wide registry of the bot's metrics.
+ * <p>
+ * Components create their counters, gauges and histograms here once and update them on their hot paths. The
+ * registry is exported in the Prometheus text format on {@code http://127.0.0.1:<metricsPort>/metrics} when the
+ * {@code metricsPort} setting is set, and always as the attributes of the {@code com.chalwk:type=Metrics} JMX MBean.
+ * Metrics are sorted by name in both.
+ */
+public final class Metrics {
+
+    // The loopback port of the Prometheus endpoint; zero or less disables it.
+    private static final int PORT = Settings.getInt("metricsPort", 0);
+
+    private static final Map<String, Metric> METRICS = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Gets a counter, creating it on first use.
+     *
+     * @param name The name of the metric, ending in {@code _total}.
+     * @param help The description of the metric.
+     * @return The counter.
+     */
+    public static Counter counter(String name, String help) {
+        return ((CounterMetric) METRICS.computeIfAbsent(name, key -> new CounterMetric(name, help))).counter;
+    }
+
+    /**
+     * Gets a family of counters with one label, creating it on first use.
+     *
+     * @param name  The name of the metric, ending in {@code _total}.
+     * @param help  The description of the metric.
+     * @param label The name of the label.
+     * @return The counter family.
+     */
+    public static LabeledCounter counter(String name, String help, String label) {
+        return (LabeledCounter) METRICS.computeIfAbsent(name, key -> new LabeledCounter(name, help, label));
+    }
+
+    /**
+     * Gets a histogram, creating it on first use.
+     *
+     * @param name The name of the metric, ending in its unit.
+     * @param help The description of the metric.
+     * @return The histogram.
+     */
+    public static Histogram histogram(String name, String help) {
+        return (Histogram) METRICS.computeIfAbsent(name, key -> new Histogram(name, help));
+    }
+
+    /**
+     * Registers a gauge read from a component when the metrics are exported, replacing any earlier one of the same
+     * name.
+     *
+     * @param name  The name of the metric.
+     * @param help  The description of the metric.
+     * @param value Reads the current value.
+     */
+    public static void gauge(String name, String help, LongSupplier value) {
+        METRICS.put(name, new FunctionMetric(name, help, "gauge", value));
+    }
+
+    /**
+     * Registers a counter kept by a component itself and read when the metrics are exported, replacing any earlier
+     * one of the same name.
+     *
+     * @param name  The name of the metric, ending in {@code _total}.
+     * @param help  The description of the metric.
+     * @param value Reads the current count.
+     */
+    public static void counter(String name, String help, LongSupplier value) {
+        METRICS.put(name, new FunctionMetric(name, help, "counter", value));
+    }
+
+    /**
+     * Starts exporting the metrics over JMX and, if the {@code metricsPort} setting is set, over HTTP.
+     */
+    public static void start() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(),
+                    new ObjectName("com.chalwk:type=Metrics"));
+        } catch (JMException e) {
+            Logger.warning("Cannot register the metrics MBean: " + e.getMessage());
+        }
+        if (PORT > 0) {
+            try {
+                new MetricsServer(PORT).start();
+                Logger.info("Serving metrics on http://127.0.0.1:" + PORT + "/metrics");
+            } catch (IOException e) {
+                Logger.warning("Cannot serve metrics on port " + PORT + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format.
+     *
+     * @return The metrics.
+     */
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Metric metric : METRICS.values()) {
+            metric.writePrometheus(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Takes a snapshot of every metric's current values.
+     *
+     * @return The values, keyed and sorted by attribute name.
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new TreeMap<>();
+        for (Metric metric : METRICS.values()) {
+            metric.snapshot(snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Appends the HELP and TYPE lines of a metric.
+     *
+     * @param out  The text to append to.
+     * @param name The name of the metric.
+     * @param help The description of the metric.
+     * @param type The Prometheus type of the metric.
+     */
+    static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Escapes a label value for the Prometheus text format.
+     *
+     * @param value The label value.
+     * @return The escaped value.
+     */
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * A counter owned by the registry.
+     */
+    private static final class CounterMetric implements Metric {
+
+        private final String name;
+        private final String help;
+        private final Counter counter = new Counter();
+
+        /**
+         * Creates a counter.
+         *
+         * @param name The name of the metric.
+         * @param help The description of the metric.
+         */
+        private CounterMetric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public void writePrometheus(StringBuilder out) {
+            header(out, name, help, "counter");
+            out.append(name).append(' ').append(counter.get()).append('\n');
+        }
+
+        @Override
+        public void snapshot(Map<String, Number> snapshot) {
+            snapshot.put(name, counter.get());
+        }
+    }
+
+    /**
+     * A gauge or counter read from a component.
+     *
+     * @param name  The name of the metric.
+     * @param help  The description of the metric.
+     * @param type  The Prometheus type of the metric.
+     * @param value Reads the current value.
+     */
+    private record FunctionMetric(String name, String help, String type, LongSupplier value) implements Metric {
+
+        @Override
+        public void writePrometheus(StringBuilder out) {
+            header(out, name, help, type);
+            out.append(name).append(' ').append(value.getAsLong()).append('\n');
+        }
+
+        @Override
+        public void snapshot(Map<String, Number> snapshot) {
+            snapshot.put(name, value.getAsLong());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Metrics;
+
+import com.chalwk.util.Execution;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the metrics in the Prometheus text format on the loopback address, for a local Prometheus agent or a quick
+ * {@code curl}.
+ */
+final class MetricsServer {
+
+    private final HttpServer server;
+
+    /**
+     * Binds the endpoint.
+     *
+     * @param port The TCP port to listen on.
+     * @throws IOException If the port cannot be bound.
+     */
+    MetricsServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", MetricsServer::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(Execution.threadFactory("metrics-http", true)));
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    void start() {
+        server.start();
+    }
+
+    /**
+     * Answers a scrape with the current metrics.
+     *
+     * @param exchange The HTTP exchange.
+     * @throws IOException If an I/O error occurs writing the response.
+     */
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Metrics;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts and times every HTTP request JDA makes to Discord's REST API, by response status class, and counts the
+ * requests Discord answered with 429 Too Many Requests. Installed on JDA's HTTP client.
+ */
+public final class RestMetrics implements Interceptor {
+
+    private final LabeledCounter requests = Metrics.counter("discord_rest_requests_total",
+            "Discord REST requests, by response status class", "status");
+    private final Counter rateLimited = Metrics.counter("discord_rest_rate_limited_total",
+            "Discord REST requests rejected with 429 Too Many Requests");
+    private final Histogram latency = Metrics.histogram("discord_rest_latency_micros",
+            "Discord REST request latency, in microseconds");
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(chain.request());
+            int code = response.code();
+            requests.get(code / 100 + "xx").increment();
+            if (code == 429) {
+                rateLimited.increment();
+            }
+            return response;
+        } catch (IOException e) {
+            requests.get("error").increment();
+            throw e;
+        } finally {
+            latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+}
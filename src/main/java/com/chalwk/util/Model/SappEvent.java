@@ -0,0 +1,58 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util.Model;
+
+import com.chalwk.util.Enums.ColorName;
+import org.json.JSONObject;
+
+import java.awt.*;
+
+/**
+ * An immutable game event read from the journal, parsed once and shared by everything that handles it.
+ *
+ * @param sequence    The sequence number of the event in the journal, used to acknowledge it.
+ * @param serverID    The ID of the server the event happened on.
+ * @param event       The name of the event, e.g. {@code OnJoin}.
+ * @param time        The time of the event, in seconds since the epoch, or 0 if unknown.
+ * @param title       The title of the notification.
+ * @param description The description of the notification.
+ * @param colorName   The name of the notification color, as written by Discord.lua.
+ * @param color       The notification color, resolved from {@link ColorName}.
+ * @param channel     The ID of the channel the notification is sent to.
+ */
+public record SappEvent(long sequence, String serverID, String event, long time, String title, String description,
+                        String colorName, Color color, String channel) {
+
+    /**
+     * Parses an event record.
+     *
+     * @param sequence The sequence number of the event in the journal.
+     * @param record   The event record.
+     * @return The event.
+     * @throws IllegalArgumentException If a required property of the record is missing.
+     */
+    public static SappEvent from(long sequence, JSONObject record) {
+        String serverID = require(record, "server");
+        String colorName = require(record, "color").intern();
+        return new SappEvent(sequence, serverID.intern(), record.optString("event").intern(), record.optLong("time"),
+                require(record, "title"), require(record, "description"), colorName, ColorName.fromName(colorName),
+                require(record, "channel").intern());
+    }
+
+    /**
+     * Gets a required string property of a record.
+     *
+     * @param record The record.
+     * @param key    The name of the property.
+     * @return The value of the property.
+     * @throws IllegalArgumentException If the property is missing.
+     */
+    private static String require(JSONObject record, String key) {
+        String value = record.optString(key, null);
+        if (value == null) {
+            throw new IllegalArgumentException("Event record without " + key + ": " + record);
+        }
+        return value;
+    }
+}
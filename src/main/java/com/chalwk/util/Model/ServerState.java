@@ -0,0 +1,44 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util.Model;
+
+import org.json.JSONObject;
+
+/**
+ * An immutable snapshot of a game server, replaced as a whole whenever a new status record is ingested, so every
+ * consumer of a snapshot sees the same consistent state.
+ *
+ * @param serverID The ID of the server, as configured in Discord.lua.
+ * @param status   The latest status of the server.
+ */
+public record ServerState(String serverID, StatusView status) {
+
+    /**
+     * Builds the snapshot described by a status record.
+     *
+     * @param record The status record.
+     * @return The server state.
+     * @throws IllegalArgumentException If the record has no server ID or status.
+     */
+    public static ServerState from(JSONObject record) {
+        String serverID = record.optString("server", null);
+        JSONObject status = record.optJSONObject("status");
+        if (serverID == null || status == null) {
+            throw new IllegalArgumentException("Status record without server or status: " + record);
+        }
+        return new ServerState(serverID.intern(), StatusView.from(status));
+    }
+
+    /**
+     * Serializes the snapshot back into a status record.
+     *
+     * @return The status record.
+     */
+    public JSONObject toJSON() {
+        return new JSONObject()
+                .put("server", serverID)
+                .put("type", "status")
+                .put("status", status.toJSON());
+    }
+}
@@ -0,0 +1,109 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util.Model;
+
+import com.chalwk.util.Enums.ColorName;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable view of a server status message, parsed once from a status record.
+ *
+ * @param title       The title of the status embed.
+ * @param description The description of the status embed.
+ * @param colorName   The name of the embed color, as written by Discord.lua.
+ * @param color       The embed color, resolved from {@link ColorName}.
+ * @param channel     The ID of the channel holding the status message.
+ * @param fields      The embed fields, in order.
+ * @param contentHash A hash of everything the status renders except its "Last updated" footer, so two statuses with
+ *                    the same hash render the same embed.
+ */
+public record StatusView(String title, String description, String colorName, Color color, String channel,
+                         List<Field> fields, long contentHash) {
+
+    /**
+     * Parses a status object.
+     *
+     * @param status The {@code status} object of a status record.
+     * @return The status view.
+     */
+    public static StatusView from(JSONObject status) {
+        String title = status.optString("title", "N/A");
+        String description = status.optString("description", "N/A");
+        String colorName = status.optString("color", "0x00FF00").intern();
+        String channel = status.optString("channel").intern();
+
+        List<Field> fields = new ArrayList<>();
+        JSONArray array = status.optJSONArray("fields");
+        if (array != null) {
+            for (Object o : array) {
+                JSONObject field = (JSONObject) o;
+                fields.add(new Field(field.optString("name", "N/A").intern(), field.optString("value", "N/A"),
+                        field.optBoolean("inline", false)));
+            }
+        }
+
+        long hash = hash(0xcbf29ce484222325L, title);
+        hash = hash(hash, description);
+        hash = hash(hash, colorName);
+        hash = hash(hash, channel);
+        for (Field field : fields) {
+            hash = hash(hash, field.name());
+            hash = hash(hash, field.value());
+            hash = hash(hash, field.inline() ? "1" : "0");
+        }
+        return new StatusView(title, description, colorName, ColorName.fromName(colorName), channel,
+                List.copyOf(fields), hash);
+    }
+
+    /**
+     * Serializes the status back into the {@code status} object of a status record.
+     *
+     * @return The status object.
+     */
+    public JSONObject toJSON() {
+        JSONArray array = new JSONArray();
+        for (Field field : fields) {
+            array.put(new JSONObject()
+                    .put("name", field.name())
+                    .put("value", field.value())
+                    .put("inline", field.inline()));
+        }
+        return new JSONObject()
+                .put("title", title)
+                .put("description", description)
+                .put("color", colorName)
+                .put("channel", channel)
+                .put("fields", array);
+    }
+
+    /**
+     * Folds a string into a running FNV-1a hash, followed by a separator so that adjacent strings cannot run
+     * into each other.
+     *
+     * @param hash The running hash.
+     * @param text The string to fold in.
+     * @return The updated hash.
+     */
+    private static long hash(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xFFFF) * 0x100000001b3L;
+    }
+
+    /**
+     * A field of the status embed.
+     *
+     * @param name   The name of the field.
+     * @param value  The value of the field.
+     * @param inline Whether the field is displayed inline.
+     */
+    public record Field(String name, String value, boolean inline) {
+    }
+}
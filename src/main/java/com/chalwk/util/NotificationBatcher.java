@@ -0,0 +1,247 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces event notifications bound for the same channel into as few messages as possible.
+ * <p>
+ * The first notification for a channel opens a short window; everything submitted for that channel before the
+ * window closes is sent together. Up to {@link Message#MAX_EMBED_COUNT} notifications are sent as individual embeds
+ * in one message. Larger batches are folded into compact digest embeds instead, so a map change with a full server
+ * leaving and joining costs a single REST call rather than dozens. All messages respect Discord's per-embed and
+ * per-message size limits. Each notification's callbacks run when the message carrying it succeeds or fails.
+ */
+public class NotificationBatcher {
+
+    // How long notifications for a channel are collected before they are sent, in milliseconds.
+    private static final long WINDOW_MILLIS = 500;
+
+    // The separator between notifications in a digest embed.
+    private static final String DIGEST_SEPARATOR = "\n\n";
+
+    // The pending notifications for each channel, keyed by channel ID.
+    private final Map<Long, Batch> batches = new HashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+    private final DeliveryScheduler delivery;
+
+    /**
+     * Creates a NotificationBatcher that flushes its batches on the given scheduler.
+     *
+     * @param scheduler The scheduler used to close each batching window.
+     * @param delivery  The scheduler the batched messages are delivered through.
+     */
+    public NotificationBatcher(ScheduledExecutorService scheduler, DeliveryScheduler delivery) {
+        this.scheduler = scheduler;
+        this.delivery = delivery;
+    }
+
+    /**
+     * Queues a notification for a channel, opening a batching window if none is open for it yet.
+     *
+     * @param channel   The text channel the notification is for.
+     * @param embed     The notification embed.
+     * @param onSent    Run once Discord has confirmed the message carrying the notification.
+     * @param onFailure Run with the cause if the message carrying the notification cannot be sent.
+     */
+    public synchronized void submit(TextChannel channel, MessageEmbed embed, Runnable onSent,
+                                    Consumer<Throwable> onFailure) {
+        Batch batch = batches.get(channel.getIdLong());
+        if (batch == null) {
+            batch = new Batch(channel);
+            batches.put(channel.getIdLong(), batch);
+            scheduler.schedule(() -> flush(channel.getIdLong()), WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        batch.notifications.add(new Notification(embed, List.of(onSent), List.of(onFailure)));
+    }
+
+    /**
+     * Closes the batching window of a channel and sends everything collected in it.
+     *
+     * @param channelID The ID of the channel to flush.
+     */
+    private void flush(long channelID) {
+        Batch batch;
+        synchronized (this) {
+            batch = batches.remove(channelID);
+        }
+        if (batch == null) {
+            return;
+        }
+
+        List<Notification> notifications = batch.notifications.size() > Message.MAX_EMBED_COUNT
+                ? digest(batch.notifications) : batch.notifications;
+        for (List<Notification> message : pack(notifications)) {
+            Notification merged = merge(null, message);
+            boolean queued = delivery.submitEvent(RouteLimiter.channelRoute(batch.channel.getId()),
+                    () -> batch.channel.sendMessageEmbeds(message.stream().map(Notification::embed).toList()),
+                    merged::sent,
+                    failure -> {
+                        Logger.warning("Error sending event notifications: " + failure.getMessage());
+                        merged.failed(failure);
+                    });
+            if (!queued) {
+                merged.failed(new RejectedExecutionException("Delivery queue is full"));
+            }
+        }
+    }
+
+    /**
+     * Folds notifications into digest embeds, each holding as many notifications as fit in its description.
+     *
+     * @param notifications The notifications to fold.
+     * @return The digests, each carrying the callbacks of the notifications folded into it.
+     */
+    private static List<Notification> digest(List<Notification> notifications) {
+        List<Notification> digests = new ArrayList<>();
+        StringBuilder description = new StringBuilder();
+        List<Notification> folded = new ArrayList<>();
+
+        for (Notification notification : notifications) {
+            String entry = digestEntry(notification.embed());
+            int separator = description.isEmpty() ? 0 : DIGEST_SEPARATOR.length();
+            if (description.length() + separator + entry.length() > MessageEmbed.DESCRIPTION_MAX_LENGTH) {
+                digests.add(merge(digestEmbed(folded, description), folded));
+                description.setLength(0);
+                folded = new ArrayList<>();
+            }
+            if (!folded.isEmpty()) {
+                description.append(DIGEST_SEPARATOR);
+            }
+            description.append(entry);
+            folded.add(notification);
+        }
+        if (!folded.isEmpty()) {
+            digests.add(merge(digestEmbed(folded, description), folded));
+        }
+        return digests;
+    }
+
+    /**
+     * Combines the callbacks of several notifications.
+     *
+     * @param embed         The embed of the combined notification, or null if it is not sent as a single embed.
+     * @param notifications The notifications to combine.
+     * @return A notification whose callbacks run the callbacks of all the given notifications.
+     */
+    private static Notification merge(MessageEmbed embed, List<Notification> notifications) {
+        List<Runnable> onSent = new ArrayList<>();
+        List<Consumer<Throwable>> onFailure = new ArrayList<>();
+        for (Notification notification : notifications) {
+            onSent.addAll(notification.onSent());
+            onFailure.addAll(notification.onFailure());
+        }
+        return new Notification(embed, onSent, onFailure);
+    }
+
+    /**
+     * Renders a notification as a compact digest entry: its title in bold, followed by its description.
+     *
+     * @param embed The notification.
+     * @return The digest entry, never longer than a digest description.
+     */
+    private static String digestEntry(MessageEmbed embed) {
+        String title = embed.getTitle() == null ? "" : "**" + embed.getTitle() + "**";
+        String description = embed.getDescription() == null ? "" : embed.getDescription();
+        String entry = description.isEmpty() ? title : title + "\n" + description;
+        return Helpers.truncate(entry, MessageEmbed.DESCRIPTION_MAX_LENGTH);
+    }
+
+    /**
+     * Builds a digest embed.
+     *
+     * @param folded      The notifications in the digest; the first one provides its color.
+     * @param description The digest entries.
+     * @return The digest embed.
+     */
+    private static MessageEmbed digestEmbed(List<Notification> folded, CharSequence description) {
+        return new EmbedBuilder()
+                .setTitle("📋 " + folded.size() + " events")
+                .setDescription(description)
+                .setColor(folded.get(0).embed().getColorRaw())
+                .build();
+    }
+
+    /**
+     * Packs notifications into messages of at most {@link Message#MAX_EMBED_COUNT} embeds and
+     * {@link MessageEmbed#EMBED_MAX_LENGTH_BOT} characters, keeping their order.
+     *
+     * @param notifications The notifications to pack.
+     * @return The notifications of each message.
+     */
+    private static List<List<Notification>> pack(List<Notification> notifications) {
+        List<List<Notification>> messages = new ArrayList<>();
+        List<Notification> current = new ArrayList<>();
+        int length = 0;
+
+        for (Notification notification : notifications) {
+            int embedLength = notification.embed().getLength();
+            if (current.size() == Message.MAX_EMBED_COUNT || length + embedLength > MessageEmbed.EMBED_MAX_LENGTH_BOT) {
+                messages.add(current);
+                current = new ArrayList<>();
+                length = 0;
+            }
+            current.add(notification);
+            length += embedLength;
+        }
+        if (!current.isEmpty()) {
+            messages.add(current);
+        }
+        return messages;
+    }
+
+    /**
+     * A notification embed and the callbacks to run once it has been sent or has failed.
+     *
+     * @param embed     The embed.
+     * @param onSent    Run once the message carrying the embed has been sent.
+     * @param onFailure Run with the cause if the message carrying the embed cannot be sent.
+     */
+    private record Notification(MessageEmbed embed, List<Runnable> onSent, List<Consumer<Throwable>> onFailure) {
+
+        /**
+         * Runs the success callbacks.
+         */
+        private void sent() {
+            onSent.forEach(Runnable::run);
+        }
+
+        /**
+         * Runs the failure callbacks.
+         *
+         * @param failure The cause of the failure.
+         */
+        private void failed(Throwable failure) {
+            onFailure.forEach(callback -> callback.accept(failure));
+        }
+    }
+
+    /**
+     * The notifications collected for one channel during its batching window.
+     */
+    private static final class Batch {
+
+        private final TextChannel channel;
+        private final List<Notification> notifications = new ArrayList<>();
+
+        private Batch(TextChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits how many blocking calls may run against the same Discord route at once.
+ * <p>
+ * Discord rate limits requests per route, such as the messages of one channel, so running more calls against a route
+ * than it allows only makes them wait in JDA's rate limiter. A route's calls beyond the limit stay queued instead,
+ * without holding a delivery slot, so a burst to one channel cannot keep the calls to other channels waiting. The
+ * default limit of one also keeps the messages sent to a channel in the order they were submitted.
+ */
+public class RouteLimiter {
+
+    // The most calls allowed to run against one route at once.
+    private static final int ROUTE_CONCURRENCY = Math.max(1, Settings.getInt("routeConcurrency", 1));
+
+    // The permits of each route, keyed by route.
+    private final Map<String, Semaphore> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the route key of a channel's messages.
+     *
+     * @param channelID The ID of the channel.
+     * @return The route key.
+     */
+    public static String channelRoute(String channelID) {
+        return "channels/" + channelID + "/messages";
+    }
+
+    /**
+     * Claims a route for a call, if the route has a permit left.
+     *
+     * @param route The route the call is made against.
+     * @return true if the call may run now, false if the route is at its limit.
+     */
+    public boolean tryAcquire(String route) {
+        return routes.computeIfAbsent(route, key -> new Semaphore(ROUTE_CONCURRENCY)).tryAcquire();
+    }
+
+    /**
+     * Releases a route once a call against it has completed.
+     *
+     * @param route The route the call was made against.
+     */
+    public void release(String route) {
+        Semaphore permits = routes.get(route);
+        if (permits != null) {
+            permits.release();
+        }
+    }
+}
@@ -1,110 +1,473 @@
 package com.chalwk.util;
 
 import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.Metrics.Histogram;
+import com.chalwk.util.Metrics.LabeledCounter;
+import com.chalwk.util.Metrics.Metrics;
+import com.chalwk.util.Model.SappEvent;
+import com.chalwk.util.Model.StatusView;
 import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
-import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.ShardManager;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.chalwk.util.Helpers.*;
 
+/**
+ * The process-wide monitoring engine.
+ * <p>
+ * A single scheduler ingests the event journal once per tick and fans the results out to every registered guild:
+ * each notification and status update is delivered to whichever guild owns the target channel. Guilds are kept in
+ * a registry keyed by guild ID, so a reconnect that fires {@code GuildReadyEvent} again only refreshes the entry
+ * instead of starting another scheduler.
+ * <p>
+ * An event is acknowledged in the journal only once Discord has confirmed the message carrying it. Failures that
+ * may pass, such as timeouts, server errors and a full delivery queue, are retried with an exponentially growing
+ * delay, up to {@link #MAX_RETRIES} times; an event Discord rejects outright, e.g. because the channel is gone, or
+ * that is still failing after its last retry, is logged and acknowledged so it cannot block the journal forever. An
+ * event whose channel is in none of the registered guilds is retried the same way while some guilds may still be
+ * loading, e.g. right after a restart replays the journal, and given up on as soon as every shard is connected with
+ * all of its guilds registered.
+ */
 public class ServerMonitor {
 
+    // The gateway intents the monitor needs. It only looks up guilds and text channels by ID and sends to them, and
+    // JDA caches guilds and channels without any intent.
+    public static final Set<GatewayIntent> REQUIRED_INTENTS =
+            Collections.unmodifiableSet(EnumSet.noneOf(GatewayIntent.class));
+
+    // Interval of the safety-net poll when journal changes are being watched, in seconds.
+    private static final long SAFETY_POLL_SECONDS = 30;
+
+    // Interval of the poll when the file system cannot be watched, in seconds.
+    private static final long FALLBACK_POLL_SECONDS = 2;
+
+    // The most events delivered per tick; the rest of a backlog is carried over to the following ticks.
+    private static final int MAX_EVENTS_PER_TICK = 50;
+
+    // Delay before the next tick when a backlog is being worked through, in milliseconds.
+    private static final long BACKLOG_DELAY_MILLIS = 1000;
+
+    // Delay before an event whose delivery failed is first sent again, in seconds; doubled on every further retry.
+    private static final long RETRY_DELAY_SECONDS = 5;
+
+    // The longest delay between two retries of an event, in seconds.
+    private static final long MAX_RETRY_DELAY_SECONDS = 300;
+
+    // The most times an event is sent again before it is given up on.
+    private static final int MAX_RETRIES = Math.max(0, Settings.getInt("deliveryMaxRetries", 8));
+
+    // The loopback port Discord.lua can push records to; zero or less disables the socket.
+    private static final int INGEST_PORT = Settings.getInt("ingestPort", 0);
+
+    // How often an unchanged status message is refreshed to move its "Last updated" footer, in seconds.
+    // Zero or less never refreshes an unchanged status.
+    private static final long STATUS_HEARTBEAT_SECONDS = Settings.getLong("statusHeartbeatSeconds", 300);
+
+    // The single monitor instance, created when the first guild is registered.
+    private static ServerMonitor instance;
+
+    // The registered guilds, keyed by guild ID.
+    private final Map<Long, Guild> guilds = new ConcurrentHashMap<>();
+
+    // The last status rendered for each server, keyed by server ID.
+    private final Map<String, RenderedStatus> renderedStatuses = new ConcurrentHashMap<>();
+
+    private final CloseableScheduledExecutorService scheduler;
+    private final DeliveryScheduler delivery;
+    private final EventJournal journal;
+    private final NotificationBatcher batcher;
+    private final StatusMessages statusMessages;
+
+    // Whether a change-triggered tick is already waiting on the scheduler.
+    private final AtomicBoolean triggered = new AtomicBoolean();
+
+    // Pipeline metrics.
+    private final LabeledCounter eventsIngested = Metrics.counter("halo_events_ingested_total",
+            "Events read from the journal, by server", "server");
+    private final LabeledCounter eventsDelivered = Metrics.counter("halo_events_delivered_total",
+            "Events confirmed by Discord, by server", "server");
+    private final LabeledCounter eventsDropped = Metrics.counter("halo_events_dropped_total",
+            "Events given up on without being delivered, by server", "server");
+    // Discord.lua stamps events with os.time(), so the latency is only known to the whole second.
+    private final Histogram deliveryLatency = Metrics.histogram("halo_event_delivery_latency_seconds",
+            "Time from an event's timestamp in Discord.lua to Discord confirming its message, in whole seconds");
+    private final Histogram tickDuration = Metrics.histogram("halo_monitor_tick_micros",
+            "Duration of a monitor tick, in microseconds");
+
     /**
-     * Constructs a new ServerMonitor instance and schedules a task to run at a fixed rate.
+     * Constructs the ServerMonitor. The tick runs whenever the event journal changes, with a slow fixed-rate poll
+     * kept as a safety net in case a change notification is missed.
      *
-     * @param event The GuildReadyEvent that triggers the server monitor.
-     * @throws IOException If an I/O error occurs.
+     * @throws IOException If an I/O error occurs opening the event journal.
      */
-    public ServerMonitor(GuildReadyEvent event) throws IOException {
+    private ServerMonitor() throws IOException {
         // Create a CloseableScheduledExecutorService with a single-threaded scheduled executor.
-        CloseableScheduledExecutorService scheduler = new CloseableScheduledExecutorService(Executors.newScheduledThreadPool(1));
+        this.scheduler = new CloseableScheduledExecutorService(
+                Executors.newScheduledThreadPool(1, Execution.threadFactory("server-monitor", false)));
 
-        // Create a CloseableExecutorService with a cached thread pool executor.
-        CloseableExecutorService executorService = new CloseableExecutorService(Executors.newCachedThreadPool());
+        // Create the DeliveryScheduler that all Discord REST calls go through.
+        this.delivery = new DeliveryScheduler();
 
-        // Get the ExecutorService from the CloseableExecutorService.
-        ExecutorService executor = executorService.executorService;
+        this.journal = new EventJournal();
+        this.batcher = new NotificationBatcher(scheduler.scheduler, delivery);
+        this.statusMessages = new StatusMessages();
 
-        // Create a new Task instance with the event and executor.
-        Task task = new Task(event, executor);
+        JournalWatcher watcher = createWatcher();
+        if (watcher != null) {
+            // Wake the monitor as soon as the journal changes, and poll slowly in case a notification is missed.
+            watcher.addListener(this::trigger);
+            scheduler.scheduleAtFixedRate(this::tick, 0, SAFETY_POLL_SECONDS, TimeUnit.SECONDS);
+        } else {
+            // Without change notifications, poll at a fixed rate of every 2 seconds.
+            scheduler.scheduleAtFixedRate(this::tick, 0, FALLBACK_POLL_SECONDS, TimeUnit.SECONDS);
+        }
 
-        // Schedule the task to run at a fixed rate of every 2 seconds, with no initial delay.
-        scheduler.scheduleAtFixedRate(task, 0, 2, TimeUnit.SECONDS);
+        if (INGEST_PORT > 0) {
+            startIngestServer();
+        }
+
+        Metrics.gauge("halo_delivery_queued_events", "Event notifications waiting to be sent", delivery::getQueuedEvents);
+        Metrics.gauge("halo_delivery_queued_statuses", "Status updates waiting to be sent", delivery::getQueuedStatuses);
+        Metrics.gauge("halo_delivery_active_statuses", "Status updates in flight", delivery::getActiveStatuses);
+        Metrics.gauge("halo_delivery_in_flight", "Discord REST calls in flight", delivery::getInFlight);
+        Metrics.counter("halo_delivery_rejected_total", "Event notifications rejected because the delivery queue was full",
+                delivery::getRejected);
     }
 
     /**
-     * Updates the server status by sending or editing a message in the specified text channel.
+     * Gets the process-wide ServerMonitor, starting it on first use.
      *
-     * @param serverID    The ID of the server whose status is being updated.
-     * @param parentTable The JSON object containing the server status information.
-     * @param messageIDs  The JSON object containing the message IDs for each server.
-     * @param guild       The guild (server) where the status update is being performed.
+     * @return The shared ServerMonitor.
+     * @throws IOException If an I/O error occurs opening the event journal.
      */
-    private static void updateServerStatus(String serverID, JSONObject parentTable, JSONObject messageIDs, Guild guild) {
-        // Map to cache text channels by their IDs.
-        Map<String, TextChannel> channelMap = new HashMap<>();
+    public static synchronized ServerMonitor getInstance() throws IOException {
+        if (instance == null) {
+            instance = new ServerMonitor();
+        }
+        return instance;
+    }
 
-        // Retrieve the status information for the specified server.
-        JSONObject status = parentTable.getJSONObject(serverID).getJSONObject("status");
-        String statusChannelID = status.getString("channel");
+    /**
+     * Creates and starts the journal watcher.
+     *
+     * @return The started JournalWatcher, or null if the file system cannot be watched.
+     */
+    private static JournalWatcher createWatcher() {
+        try {
+            JournalWatcher watcher = new JournalWatcher();
+            watcher.start();
+            return watcher;
+        } catch (IOException | UnsupportedOperationException e) {
+            Logger.warning("Cannot watch the event journal, falling back to polling: " + e.getMessage());
+            return null;
+        }
+    }
 
-        // Get or create the text channel for the status updates.
-        channelMap.computeIfAbsent(statusChannelID, id -> Optional.ofNullable(guild.getTextChannelById(id)).orElseThrow(
-                () -> new IllegalArgumentException("Channel not found: [" + id + "] (Server ID: " + serverID + ")")));
+    /**
+     * Starts accepting records pushed over the loopback socket; they wake the monitor as soon as they arrive.
+     * If the socket cannot be bound, Discord.lua keeps writing the journal file directly.
+     */
+    private void startIngestServer() {
+        try {
+            new EventIngestServer(INGEST_PORT, journal, this::trigger).start();
+            Logger.info("Accepting events on 127.0.0.1:" + INGEST_PORT);
+        } catch (IOException e) {
+            Logger.warning("Cannot listen for events on port " + INGEST_PORT + ": " + e.getMessage());
+        }
+    }
 
-        TextChannel statusTextChannel = channelMap.get(statusChannelID);
-        EmbedBuilder embed = createEmbedMessage(status);
+    /**
+     * Registers a guild to receive notifications and status updates. Registering a guild again, e.g. after a
+     * reconnect, replaces the previous entry.
+     *
+     * @param guild The guild to register.
+     */
+    public void register(Guild guild) {
+        guilds.put(guild.getIdLong(), guild);
+    }
 
-        // Retrieve the message ID for the server status update.
-        String messageID = messageIDs.optString(serverID, null);
-        if (messageID == null || !messageExists(statusTextChannel, messageID)) {
-            // Send a new message if no message ID exists or the message does not exist.
-            Message message = statusTextChannel.sendMessageEmbeds(embed.build()).complete();
-            messageIDs.put(serverID, message.getId());
-            FileIO.saveJSONObjectToFile(messageIDs, MESSAGE_ID_FILE);
-        } else {
-            // Edit the existing message if it exists.
-            statusTextChannel.retrieveMessageById(messageID).queue(message -> message.editMessageEmbeds(embed.build()).queue());
+    /**
+     * Queues a tick on the scheduler, unless one is already queued.
+     */
+    private void trigger() {
+        if (triggered.compareAndSet(false, true)) {
+            scheduler.scheduler.execute(() -> {
+                triggered.set(false);
+                tick();
+            });
         }
     }
 
     /**
-     * Sends event notifications for a specific server.
+     * Runs a tick on the scheduler and waits for it to finish, so benchmarks and load tests can drive the monitor
+     * deterministically.
      *
-     * @param serverID       The ID of the server for which events are being sent.
-     * @param events         A JSON array containing the events to be sent.
-     * @param updatedServers A set of server IDs that have been updated.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     * @throws ExecutionException   If the tick throws.
+     */
+    void tickNow() throws InterruptedException, ExecutionException {
+        scheduler.scheduler.submit(this::tick).get();
+    }
+
+    /**
+     * Runs a tick and records its duration.
+     */
+    private void tick() {
+        long started = System.nanoTime();
+        try {
+            ingest();
+        } finally {
+            tickDuration.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+        }
+    }
+
+    /**
+     * Ingests the journal once and fans the new events and the server statuses out to the registered guilds.
      */
-    private static void sendEventNotification(String serverID, JSONArray events, Set<String> updatedServers, Guild guild) {
-        for (Object o : events) {
-            JSONObject event = (JSONObject) o;
+    private void ingest() {
+        // Leave the journal unread until there is a guild to deliver to.
+        if (guilds.isEmpty()) {
+            return;
+        }
+        Collection<Guild> targets = guilds.values();
+
+        List<SappEvent> events;
 
-            // Extract event details.
-            String title = event.getString("title");
-            String description = event.getString("description");
-            String channelID = event.getString("channel");
-            String color = event.getString("color");
+        try {
+            // Read the records appended to the journal since the last tick, up to this tick's budget.
+            events = journal.poll(MAX_EVENTS_PER_TICK);
+            if (journal.hasBacklog()) {
+                scheduler.scheduler.schedule(this::trigger, BACKLOG_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            // Log a warning if there is an error reading the journal.
+            Logger.warning("Error reading event journal: " + e.getMessage());
+            return;
+        }
+
+        // Queue an update of every server whose status changed or is due a heartbeat.
+        long now = System.nanoTime();
+        journal.getStatuses().forEach((serverID, state) -> {
+            if (isStatusDue(serverID, state.status(), now)) {
+                updateServerStatus(serverID, state.status(), targets);
+            }
+        });
+
+        // Send a notification for every new event.
+        for (SappEvent event : events) {
+            eventsIngested.get(event.serverID()).increment();
+            send(event, targets, 0);
+        }
+    }
 
-            // Send the event message.
-            sendMessage(title, description, color, channelID, guild, serverID);
+    /**
+     * Sends the notification for an event, acknowledging it straight away if it cannot be sent at all.
+     *
+     * @param event   The event.
+     * @param guilds  The guilds to look for the event channel in.
+     * @param retries The number of times the event has been sent again.
+     */
+    private void send(SappEvent event, Collection<Guild> guilds, int retries) {
+        try {
+            sendEventNotification(event, guilds, retries);
+        } catch (RuntimeException e) {
+            // A bad record must not stop the scheduled task, nor hold up the journal.
+            Logger.warning("Cannot send event {}: {}", event.sequence(), e.getMessage(),
+                    Logger.field("serverID", event.serverID()), Logger.field("channel", event.channel()));
+            drop(event);
+        }
+    }
 
-            // Mark the server as updated.
-            updatedServers.add(serverID);
+    /**
+     * Handles a failed notification: retries it later if the failure may pass, or gives up on it otherwise.
+     *
+     * @param event   The event.
+     * @param retries The number of times the event has been sent again.
+     * @param failure The cause of the failure.
+     */
+    private void onDeliveryFailure(SappEvent event, int retries, Throwable failure) {
+        if (failure instanceof ErrorResponseException e && !e.isServerError()) {
+            Logger.warning("Discord rejected event {}, giving up on it: {}", event.sequence(), e.getMeaning(),
+                    Logger.field("serverID", event.serverID()), Logger.field("channel", event.channel()));
+            drop(event);
+            return;
         }
+        retry(event, retries, failure.toString());
+    }
 
-        // Clear the events after sending notifications.
-        events.clear();
+    /**
+     * Handles an event whose channel is in none of the registered guilds: retries it later while guilds may still be
+     * loading, or gives up on it once they all have and the channel is known to be gone.
+     *
+     * @param event   The event.
+     * @param retries The number of times the event has been sent again.
+     */
+    private void unroutable(SappEvent event, int retries) {
+        if (!isFullyLoaded()) {
+            Logger.fine("Channel of event {} not loaded yet, retrying", event.sequence(),
+                    Logger.field("serverID", event.serverID()), Logger.field("channel", event.channel()));
+            retry(event, retries, "channel not loaded");
+            return;
+        }
+        Logger.warning("Channel of event {} not found in any guild, giving up on it", event.sequence(),
+                Logger.field("serverID", event.serverID()), Logger.field("channel", event.channel()));
+        drop(event);
+    }
+
+    /**
+     * Sends an event again after a delay that doubles with every retry, or gives up on it once it has been retried
+     * {@link #MAX_RETRIES} times.
+     *
+     * @param event   The event.
+     * @param retries The number of times the event has been sent again.
+     * @param reason  Why the last attempt failed.
+     */
+    private void retry(SappEvent event, int retries, String reason) {
+        if (retries >= MAX_RETRIES) {
+            Logger.warning("Event {} still failing after {} retries, giving up on it: {}", event.sequence(), retries,
+                    reason, Logger.field("serverID", event.serverID()), Logger.field("channel", event.channel()));
+            drop(event);
+            return;
+        }
+        long delay = Math.min(RETRY_DELAY_SECONDS << Math.min(retries, 16), MAX_RETRY_DELAY_SECONDS);
+        scheduler.scheduler.schedule(() -> send(event, guilds.values(), retries + 1), delay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Checks whether every shard the bot runs is connected and has all of its guilds available and registered, so a
+     * channel missing from the registered guilds is known not to exist.
+     *
+     * @return true if every guild is registered, false if some may still be loading.
+     */
+    private boolean isFullyLoaded() {
+        Iterator<Guild> registered = guilds.values().iterator();
+        if (!registered.hasNext()) {
+            return false;
+        }
+        JDA jda = registered.next().getJDA();
+        ShardManager shardManager = jda.getShardManager();
+        Collection<JDA> shards = shardManager != null ? shardManager.getShards() : List.of(jda);
+        if (shardManager != null && shards.size() < shardManager.getShardsTotal()) {
+            return false;
+        }
+        for (JDA shard : shards) {
+            if (shard.getStatus() != JDA.Status.CONNECTED || !shard.getUnavailableGuilds().isEmpty()) {
+                return false;
+            }
+            for (Guild guild : shard.getGuilds()) {
+                if (!guilds.containsKey(guild.getIdLong())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Acknowledges an event Discord has confirmed, and records its end-to-end latency.
+     *
+     * @param event The event.
+     */
+    private void delivered(SappEvent event) {
+        journal.acknowledge(event.sequence());
+        eventsDelivered.get(event.serverID()).increment();
+        if (event.time() > 0) {
+            deliveryLatency.record(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - event.time());
+        }
+    }
+
+    /**
+     * Gives up on an event: acknowledges it without delivery so it cannot hold up the journal.
+     *
+     * @param event The event.
+     */
+    private void drop(SappEvent event) {
+        journal.acknowledge(event.sequence());
+        eventsDropped.get(event.serverID()).increment();
+    }
+
+    /**
+     * Checks whether a server's status message needs updating, and if so records the status as rendered.
+     * A status is due when its content differs from the last rendered one, or when the last render is older than
+     * the heartbeat interval.
+     *
+     * @param serverID The ID of the server.
+     * @param status   The current status of the server.
+     * @param now      The current {@link System#nanoTime()}.
+     * @return true if the status message should be updated, false otherwise.
+     */
+    private boolean isStatusDue(String serverID, StatusView status, long now) {
+        long hash = status.contentHash();
+        RenderedStatus last = renderedStatuses.get(serverID);
+        if (last != null && last.hash() == hash) {
+            long age = now - last.renderedAt();
+            if (STATUS_HEARTBEAT_SECONDS <= 0 || age < TimeUnit.SECONDS.toNanos(STATUS_HEARTBEAT_SECONDS)) {
+                return false;
+            }
+        }
+        renderedStatuses.put(serverID, new RenderedStatus(hash, now));
+        return true;
+    }
+
+    /**
+     * Queues an update of the server status, which edits its cached status message or sends one if it has none.
+     * A pending update of the same server that has not started yet is replaced.
+     *
+     * @param serverID The ID of the server whose status is being updated.
+     * @param status   The server status.
+     * @param guilds   The guilds to look for the status channel in.
+     */
+    private void updateServerStatus(String serverID, StatusView status, Collection<Guild> guilds) {
+        String route = RouteLimiter.channelRoute(status.channel());
+        delivery.submitStatus(serverID, route, () -> {
+            // Retrieve the text channel for the status updates.
+            TextChannel statusTextChannel = getTextChannel(status.channel(), guilds, serverID);
+            EmbedBuilder embed = createEmbedMessage(status);
+            return statusMessages.update(serverID, statusTextChannel, embed.build());
+        }, failure -> {
+            // Forget the rendered status so the next tick tries again.
+            renderedStatuses.remove(serverID);
+            Logger.warning("Error updating status: {}", failure.getMessage(), Logger.field("serverID", serverID),
+                    Logger.field("channel", status.channel()));
+        });
+    }
+
+    /**
+     * Queues the notification for a single journal event, to be sent with the other notifications for its channel.
+     * The event is acknowledged once the message carrying it has been sent.
+     *
+     * @param event   The event.
+     * @param guilds  The guilds to look for the event channel in.
+     * @param retries The number of times the event has been sent again.
+     */
+    private void sendEventNotification(SappEvent event, Collection<Guild> guilds, int retries) {
+        // Queue the event message for the channel, in whichever guild it belongs to.
+        TextChannel channel = findTextChannel(event.channel(), guilds);
+        if (channel == null) {
+            unroutable(event, retries);
+            return;
+        }
+        batcher.submit(channel, createEventEmbed(event.title(), event.description(), event.color()),
+                () -> delivered(event),
+                failure -> onDeliveryFailure(event, retries, failure));
+    }
+
+    /**
+     * The content hash of a rendered status and when it was rendered.
+     *
+     * @param hash       The content hash of the status.
+     * @param renderedAt The {@link System#nanoTime()} at which it was rendered.
+     */
+    private record RenderedStatus(long hash, long renderedAt) {
     }
 
     /**
@@ -133,64 +496,4 @@ public class ServerMonitor {
             scheduler.shutdown();
         }
     }
-
-    /**
-     * A wrapper for ExecutorService that implements AutoCloseable.
-     * This allows the service to be used in try-with-resources statements.
-     */
-    private record CloseableExecutorService(ExecutorService executorService) implements AutoCloseable {
-
-        /**
-         * Shuts down the ExecutorService.
-         */
-        @Override
-        public void close() {
-            executorService.shutdown();
-        }
-    }
-
-    private static class Task implements Runnable {
-
-        private final Guild guild;
-        private final ExecutorService executorService;
-
-        public Task(GuildReadyEvent event, ExecutorService executorService) {
-            this.guild = event.getGuild();
-            this.executorService = executorService;
-        }
-
-        @Override
-        public void run() {
-
-            JSONObject servers;
-            JSONObject messageIDs;
-
-            try {
-                // Load the server and message ID data from JSON files.
-                servers = FileIO.getJSONObjectFromFile(HALO_EVENTS_FILE);
-                messageIDs = FileIO.getJSONObjectFromFile(MESSAGE_ID_FILE);
-            } catch (IOException e) {
-                // Log a warning if there is an error reading the JSON files.
-                Logger.warning("Error reading JSON file: " + e.getMessage());
-                return;
-            }
-
-            // Set to keep track of updated servers.
-            Set<String> updatedServers = new HashSet<>();
-            for (String serverID : servers.keySet()) {
-
-                // Submit a task to update the server status.
-                executorService.execute(() -> updateServerStatus(serverID, servers, messageIDs, guild));
-
-                // Retrieve the events for the server and send notifications.
-                JSONArray events = servers.getJSONObject(serverID).getJSONArray("sapp_events");
-                sendEventNotification(serverID, events, updatedServers, guild);
-            }
-
-            // Save the updated server data if any servers were updated.
-            if (!updatedServers.isEmpty()) {
-                FileIO.saveJSONObjectToFile(servers, HALO_EVENTS_FILE);
-            }
-        }
-    }
-}
\ No newline at end of file
+}
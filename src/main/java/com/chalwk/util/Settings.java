@@ -0,0 +1,83 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+/**
+ * Optional bot settings, read once from settings.json in the program's directory.
+ * Every setting has a default, so the file only needs to contain the keys that should be changed.
+ */
+public class Settings {
+
+    public static final String SETTINGS_FILE = "settings.json";
+
+    // The loaded settings, or null until first use.
+    private static JSONObject settings;
+
+    /**
+     * Gets the loaded settings, reading the settings file on first use.
+     *
+     * @return The settings object; empty if the file is missing or invalid.
+     */
+    private static synchronized JSONObject get() {
+        if (settings == null) {
+            try {
+                settings = FileIO.getJSONObjectFromFile(SETTINGS_FILE);
+            } catch (IOException | JSONException e) {
+                Logger.warning("Error reading " + SETTINGS_FILE + ", using default settings: " + e.getMessage());
+                settings = new JSONObject();
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Gets a numeric setting.
+     *
+     * @param key          The name of the setting.
+     * @param defaultValue The value to use if the setting is not present.
+     * @return The value of the setting.
+     */
+    public static long getLong(String key, long defaultValue) {
+        return get().optLong(key, defaultValue);
+    }
+
+    /**
+     * Gets an integer setting.
+     *
+     * @param key          The name of the setting.
+     * @param defaultValue The value to use if the setting is not present.
+     * @return The value of the setting.
+     */
+    public static int getInt(String key, int defaultValue) {
+        return get().optInt(key, defaultValue);
+    }
+
+    /**
+     * Gets a boolean setting.
+     *
+     * @param key          The name of the setting.
+     * @param defaultValue The value to use if the setting is not present.
+     * @return The value of the setting.
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return get().optBoolean(key, defaultValue);
+    }
+
+    /**
+     * Gets a string setting.
+     *
+     * @param key          The name of the setting.
+     * @param defaultValue The value to use if the setting is not present.
+     * @return The value of the setting.
+     */
+    public static String getString(String key, String defaultValue) {
+        return get().optString(key, defaultValue);
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.chalwk.util.Helpers.MESSAGE_ID_FILE;
+
+/**
+ * Caches the ID of each server's status message, keyed by server ID.
+ * <p>
+ * Status updates edit the cached message directly by ID, without first checking that it exists. A new message is
+ * only sent when there is no cached ID yet, or when Discord answers an edit with Unknown Message because the old one
+ * was deleted. The {@link DeliveryScheduler} never runs two updates of the same server at once, so a new message
+ * cannot be sent twice. The cache is loaded from {@link Helpers#MESSAGE_ID_FILE} once and written back whenever an
+ * ID changes.
+ */
+public class StatusMessages {
+
+    // The status message ID of each server, keyed by server ID.
+    private final Map<String, String> messageIDs = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the cached message IDs.
+     *
+     * @throws IOException If an I/O error occurs reading the message ID file.
+     */
+    public StatusMessages() throws IOException {
+        JSONObject stored = FileIO.getJSONObjectFromFile(MESSAGE_ID_FILE);
+        for (String serverID : stored.keySet()) {
+            messageIDs.put(serverID, stored.getString(serverID));
+        }
+    }
+
+    /**
+     * Builds the REST call that edits the status message of a server. If the server has no status message yet, or
+     * Discord reports the old one as Unknown Message, the call sends a new one instead and caches its ID.
+     *
+     * @param serverID The ID of the server.
+     * @param channel  The text channel holding the status message.
+     * @param embed    The status embed.
+     * @return The REST call updating the status message.
+     */
+    public RestAction<Message> update(String serverID, TextChannel channel, MessageEmbed embed) {
+        String messageID = messageIDs.get(serverID);
+        if (messageID == null) {
+            return create(serverID, channel, embed);
+        }
+
+        return channel.editMessageEmbedsById(messageID, embed).onErrorFlatMap(
+                failure -> failure instanceof ErrorResponseException e && e.getErrorResponse() == ErrorResponse.UNKNOWN_MESSAGE,
+                failure -> {
+                    // The message was deleted; forget it and send a new one.
+                    messageIDs.remove(serverID, messageID);
+                    return create(serverID, channel, embed);
+                });
+    }
+
+    /**
+     * Builds the REST call that sends a new status message for a server and caches its ID.
+     *
+     * @param serverID The ID of the server.
+     * @param channel  The text channel to send the status message to.
+     * @param embed    The status embed.
+     * @return The REST call sending the status message.
+     */
+    private RestAction<Message> create(String serverID, TextChannel channel, MessageEmbed embed) {
+        return channel.sendMessageEmbeds(embed).map(message -> {
+            messageIDs.put(serverID, message.getId());
+            save();
+            return message;
+        });
+    }
+
+    /**
+     * Writes the cached message IDs back to the message ID file.
+     */
+    private synchronized void save() {
+        FileIO.saveJSONObjectToFile(new JSONObject(messageIDs), MESSAGE_ID_FILE);
+    }
+}
@@ -0,0 +1,97 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists JSON state files in the background.
+ * <p>
+ * Callers submit a snapshot of a file's content and return immediately. Only the newest snapshot of each file is
+ * kept, so a burst of changes costs a single write. Dirty files are written on a background thread every
+ * {@link #FLUSH_MILLIS} milliseconds and once more when the bot shuts down, using compact JSON and
+ * {@link FileIO#writeAtomically}, so a crash leaves either the previous or the new content and never a torn file.
+ * Whether every write is forced to disk is controlled by the {@code persistFsync} setting.
+ */
+public final class WriteBehind {
+
+    // Interval between background flushes, in milliseconds.
+    private static final long FLUSH_MILLIS = Math.max(10, Settings.getLong("persistFlushMillis", 1000));
+
+    // Whether files are forced to disk before they replace the previous content.
+    private static final boolean FSYNC = Settings.getBoolean("persistFsync", true);
+
+    // The newest unwritten snapshot of each file, keyed by file name.
+    private static final Map<String, JSONObject> PENDING = new ConcurrentHashMap<>();
+
+    // Run before every flush, so owners of frequently changing state can submit their latest snapshot.
+    private static final List<Runnable> SNAPSHOTTERS = new CopyOnWriteArrayList<>();
+
+    static {
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+                Execution.threadFactory("write-behind", true));
+        flusher.scheduleWithFixedDelay(WriteBehind::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(WriteBehind::flush, "write-behind-shutdown"));
+    }
+
+    private WriteBehind() {
+    }
+
+    /**
+     * Queues a snapshot of a file's content, replacing any snapshot of the same file that has not been written yet.
+     * The snapshot must not be modified after it has been submitted.
+     *
+     * @param fileName The name of the file in the program directory.
+     * @param content  The content to write.
+     */
+    public static void submit(String fileName, JSONObject content) {
+        PENDING.put(fileName, content);
+    }
+
+    /**
+     * Registers a task that submits its latest snapshot before every flush, including the one at shutdown.
+     *
+     * @param snapshotter The task to run.
+     */
+    public static void register(Runnable snapshotter) {
+        SNAPSHOTTERS.add(snapshotter);
+    }
+
+    /**
+     * Writes every pending snapshot now. A snapshot that cannot be written is kept for the next flush, unless a newer
+     * one has been submitted in the meantime.
+     */
+    public static synchronized void flush() {
+        for (Runnable snapshotter : SNAPSHOTTERS) {
+            try {
+                snapshotter.run();
+            } catch (RuntimeException e) {
+                Logger.warning("Error taking a snapshot for persistence: " + e.getMessage());
+            }
+        }
+
+        for (String fileName : PENDING.keySet()) {
+            JSONObject content = PENDING.remove(fileName);
+            if (content == null) continue;
+            try {
+                byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+                FileIO.writeAtomically(FileIO.getFilePath(fileName), bytes, FSYNC);
+            } catch (IOException e) {
+                Logger.warning("Error saving " + fileName + ": " + e.getMessage());
+                PENDING.putIfAbsent(fileName, content);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.CommandManager;
+
+import com.chalwk.commands.channel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cooldown checks from several threads at once, as when commands arrive on the gateway threads together.
+ * Users are drawn from a fixed pool, so most checks hit an existing bucket and some are refused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CooldownBenchmark {
+
+    // The number of distinct users issuing commands.
+    @Param({"100", "10000"})
+    public int users;
+
+    private CommandCooldownManager cooldowns;
+    private int command;
+
+    @Setup
+    public void setup() {
+        cooldowns = new CommandCooldownManager();
+        command = cooldowns.register(new channel());
+    }
+
+    @Benchmark
+    public long tryAcquire(Caller caller) {
+        long user = 1283163771287765045L + caller.random.nextInt(users);
+        return cooldowns.tryAcquire(user, command, System.nanoTime());
+    }
+
+    /**
+     * The users of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Caller {
+
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,88 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.perf;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Builds event journal records shaped like the ones Discord.lua writes, one JSON object per line.
+ */
+public final class JournalRecords {
+
+    private JournalRecords() {
+    }
+
+    /**
+     * Builds an event record.
+     *
+     * @param serverID    The ID of the game server.
+     * @param channelID   The ID of the channel the notification goes to.
+     * @param event       The name of the event, e.g. {@code OnJoin}.
+     * @param time        The time of the event, in seconds since the epoch.
+     * @param title       The title of the notification.
+     * @param description The description of the notification.
+     * @param color       The color name of the notification.
+     * @return The record, terminated by a newline.
+     */
+    public static String event(String serverID, long channelID, String event, long time, String title,
+                               String description, String color) {
+        return new JSONObject()
+                .put("server", serverID)
+                .put("type", "event")
+                .put("event", event)
+                .put("time", time)
+                .put("title", title)
+                .put("description", description)
+                .put("color", color)
+                .put("channel", Long.toString(channelID)) + "\n";
+    }
+
+    /**
+     * Builds a status record with the six fields of Discord.lua's status message.
+     *
+     * @param serverID  The ID of the game server.
+     * @param channelID The ID of the channel holding the status message.
+     * @param map       The current map.
+     * @param mode      The current game mode.
+     * @param players   The names of the players online.
+     * @return The record, terminated by a newline.
+     */
+    public static String status(String serverID, long channelID, String map, String mode, List<String> players) {
+        StringBuilder playerList = new StringBuilder();
+        for (String player : players) {
+            if (!playerList.isEmpty()) playerList.append('\n');
+            playerList.append("- **").append(player).append("** ").append(player.length() * 7);
+        }
+
+        JSONArray fields = new JSONArray()
+                .put(field("🏷️ Server Name", "- **" + serverID + "**"))
+                .put(field("📍 Server IP", "- **127.0.0.1:2302**"))
+                .put(field("🗺️ Map", "- **" + map + "**"))
+                .put(field("⚙️ Mode", "- **" + mode + "** | *Team Play*"))
+                .put(field("👥 Total Players", "- **" + players.size() + "**"))
+                .put(field("👤 Player List", players.isEmpty() ? "No players online" : playerList.toString()));
+
+        JSONObject status = new JSONObject()
+                .put("title", "🌐 Server Status")
+                .put("description", "Real-time status updates of the server.\nThis status is updated whenever something changes.")
+                .put("color", "BLUE")
+                .put("channel", Long.toString(channelID))
+                .put("fields", fields);
+        return new JSONObject().put("server", serverID).put("type", "status").put("status", status) + "\n";
+    }
+
+    /**
+     * Builds a status field.
+     *
+     * @param name  The name of the field.
+     * @param value The value of the field.
+     * @return The field.
+     */
+    private static JSONObject field(String name, String value) {
+        return new JSONObject().put("name", name).put("value", value).put("inline", false);
+    }
+}
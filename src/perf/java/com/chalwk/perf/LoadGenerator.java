@@ -0,0 +1,273 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.perf;
+
+import java.util.*;
+
+/**
+ * Simulates many game servers running Discord.lua, producing the journal records they would write.
+ * <p>
+ * Every server starts with a status record and then produces three kinds of traffic, each at random intervals:
+ * gameplay events (deaths, spawns, team switches) at a steady rate, players joining and leaving, and map changes.
+ * A map change is a burst: the end of the game, a "loading" status, the start of the next game, a status and a spawn
+ * for every player, all at once. Joins, leaves and map changes are followed by a status record, as in Discord.lua.
+ * The same seed produces the same traffic.
+ */
+public final class LoadGenerator implements RecordSource {
+
+    private static final String[] MAPS = {"bloodgulch", "dangercanyon", "deathisland", "gephyrophobia", "icefields",
+            "infinity", "sidewinder", "timberland", "hangemhigh", "ratrace", "beavercreek", "damnation",
+            "boardingaction", "chillout", "carousel", "putput", "prisoner", "wizard", "longest"};
+    private static final String[] MODES = {"CTF", "Slayer", "Team Slayer", "King", "Oddball", "Race"};
+
+    // The most players a Halo server holds.
+    private static final int MAX_PLAYERS = 16;
+
+    // The channel IDs given to the servers: each server has a status channel and an event channel.
+    private static final long FIRST_CHANNEL_ID = 1283163771287765045L;
+
+    private final Profile profile;
+    private final Random random;
+
+    // The servers, ordered by when their next record is due.
+    private final PriorityQueue<Server> servers = new PriorityQueue<>(Comparator.comparingLong(Server::nextAt));
+
+    // Records produced together and not returned yet.
+    private final Deque<TimedRecord> pending = new ArrayDeque<>();
+
+    // The time the simulation starts, in seconds since the epoch, used for the events' timestamps.
+    private final long startSeconds = System.currentTimeMillis() / 1000;
+
+    /**
+     * Creates a generator.
+     *
+     * @param profile The traffic to produce.
+     */
+    public LoadGenerator(Profile profile) {
+        this.profile = profile;
+        this.random = new Random(profile.seed());
+        for (int i = 0; i < profile.servers(); i++) {
+            Server server = new Server(i);
+            pending.add(new TimedRecord(0, server.status()));
+            servers.add(server);
+        }
+    }
+
+    @Override
+    public TimedRecord next() {
+        while (pending.isEmpty()) {
+            Server server = servers.poll();
+            if (server == null || server.nextAt() > profile.durationMillis()) {
+                return null;
+            }
+            server.step();
+            servers.add(server);
+        }
+        return pending.poll();
+    }
+
+    /**
+     * Draws an exponentially distributed interval, so events form a Poisson process.
+     *
+     * @param perMinute The mean number of events per minute.
+     * @return The interval in milliseconds, practically forever if the rate is zero.
+     */
+    private long interval(double perMinute) {
+        if (perMinute <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * 60_000 / perMinute));
+    }
+
+    /**
+     * The traffic to produce.
+     *
+     * @param servers         The number of game servers.
+     * @param eventsPerMinute The mean number of gameplay events per server and minute.
+     * @param churnPerMinute  The mean number of joins and leaves per server and minute.
+     * @param mapMinutes      The mean length of a game, in minutes; a map change ends every game. Zero or less never
+     *                        changes the map.
+     * @param durationMillis  How long to produce traffic for, in milliseconds.
+     * @param seed            The seed of the random traffic.
+     */
+    public record Profile(int servers, double eventsPerMinute, double churnPerMinute, double mapMinutes,
+                          long durationMillis, long seed) {
+
+        /**
+         * Gets the mean number of map changes per server and minute.
+         *
+         * @return The rate, or zero if the map never changes.
+         */
+        private double mapsPerMinute() {
+            return mapMinutes > 0 ? 1 / mapMinutes : 0;
+        }
+    }
+
+    /**
+     * The simulated state of one game server.
+     */
+    private final class Server {
+
+        private final String serverID;
+        private final long statusChannel;
+        private final long eventChannel;
+        private final List<String> players = new ArrayList<>();
+
+        private String map;
+        private String mode;
+        private int nextPlayer;
+
+        // When the next record of each kind is due, in milliseconds since the start.
+        private long nextEvent;
+        private long nextChurn;
+        private long nextMap;
+
+        /**
+         * Creates a server with a random map and half its slots taken.
+         *
+         * @param index The index of the server.
+         */
+        private Server(int index) {
+            this.serverID = "server-" + (index + 1);
+            this.statusChannel = FIRST_CHANNEL_ID + 2L * index;
+            this.eventChannel = statusChannel + 1;
+            this.map = MAPS[random.nextInt(MAPS.length)];
+            this.mode = MODES[random.nextInt(MODES.length)];
+            for (int i = 0; i < MAX_PLAYERS / 2; i++) {
+                players.add(newPlayer());
+            }
+            this.nextEvent = interval(profile.eventsPerMinute());
+            this.nextChurn = interval(profile.churnPerMinute());
+            this.nextMap = interval(profile.mapsPerMinute());
+        }
+
+        /**
+         * Gets when the server's next record is due.
+         *
+         * @return The time in milliseconds since the start.
+         */
+        private long nextAt() {
+            return Math.min(nextEvent, Math.min(nextChurn, nextMap));
+        }
+
+        /**
+         * Produces the server's next records and schedules the one after.
+         */
+        private void step() {
+            long now = nextAt();
+            if (now == nextMap) {
+                changeMap(now);
+                nextMap = now + interval(profile.mapsPerMinute());
+            } else if (now == nextChurn) {
+                churn(now);
+                nextChurn = now + interval(profile.churnPerMinute());
+            } else {
+                gameplay(now);
+                nextEvent = now + interval(profile.eventsPerMinute());
+            }
+        }
+
+        /**
+         * Ends the game and starts the next one, with a spawn for every player.
+         *
+         * @param now The time in milliseconds since the start.
+         */
+        private void changeMap(long now) {
+            event(now, "OnEnd", "🌅 Game Concluded!",
+                    "Game finished with a total of **" + players.size() + "** players.", "RED");
+            String previous = map;
+            map = "*Loading new Map...*";
+            add(now, status());
+            do {
+                map = MAPS[random.nextInt(MAPS.length)];
+            } while (map.equals(previous) && MAPS.length > 1);
+            mode = MODES[random.nextInt(MODES.length)];
+            event(now, "OnStart", "🌄 A new game has started!",
+                    "- Map: [**" + map + "**]\n- Mode: [**" + mode + "**] (**Team Play**)", "GREEN");
+            add(now, status());
+            for (String player : players) {
+                event(now, "OnSpawn", "🐣 " + player + " has spawned!", "", "YELLOW");
+            }
+        }
+
+        /**
+         * Lets a player join or leave; an empty server always gains one and a full one always loses one.
+         *
+         * @param now The time in milliseconds since the start.
+         */
+        private void churn(long now) {
+            boolean join = players.isEmpty() || (players.size() < MAX_PLAYERS && random.nextBoolean());
+            if (join) {
+                String player = newPlayer();
+                players.add(player);
+                event(now, "OnJoin", "🟢 Player Joined!", "**" + player + "** has connected to the server!\n"
+                        + "Current players online: **" + players.size() + "**", "GREEN");
+            } else {
+                String player = players.remove(random.nextInt(players.size()));
+                event(now, "OnQuit", "🔴 Player Left!", "**" + player + "** has disconnected from the server.\n"
+                        + "Active players remaining: **" + players.size() + "**", "RED");
+            }
+            add(now, status());
+        }
+
+        /**
+         * Produces a gameplay event for a random player.
+         *
+         * @param now The time in milliseconds since the start.
+         */
+        private void gameplay(long now) {
+            if (players.isEmpty()) return;
+            String player = players.get(random.nextInt(players.size()));
+            switch (random.nextInt(3)) {
+                case 0 -> event(now, "OnDeath", "☠️ Death!", "**" + player + "** was killed by **"
+                        + players.get(random.nextInt(players.size())) + "**", "RED");
+                case 1 -> event(now, "OnSpawn", "🐣 " + player + " has spawned!", "", "YELLOW");
+                default -> event(now, "OnSwitch", "👥 Team Switch Alert!", "**" + player + "** switched teams.",
+                        "BLUE");
+            }
+        }
+
+        /**
+         * Queues an event record.
+         *
+         * @param now         The time in milliseconds since the start.
+         * @param event       The name of the event.
+         * @param title       The title of the notification.
+         * @param description The description of the notification.
+         * @param color       The color name of the notification.
+         */
+        private void event(long now, String event, String title, String description, String color) {
+            add(now, JournalRecords.event(serverID, eventChannel, event, startSeconds + now / 1000, title,
+                    description, color));
+        }
+
+        /**
+         * Builds the server's status record.
+         *
+         * @return The record.
+         */
+        private String status() {
+            return JournalRecords.status(serverID, statusChannel, map, mode, players);
+        }
+
+        /**
+         * Queues a record.
+         *
+         * @param now  The time in milliseconds since the start.
+         * @param line The record.
+         */
+        private void add(long now, String line) {
+            pending.add(new TimedRecord(now, line));
+        }
+
+        /**
+         * Names a new player.
+         *
+         * @return The name.
+         */
+        private String newPlayer() {
+            return "Player" + (++nextPlayer);
+        }
+    }
+}
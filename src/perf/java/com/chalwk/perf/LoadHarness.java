@@ -0,0 +1,319 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.perf;
+
+import com.chalwk.util.EventJournal;
+import com.chalwk.util.FileIO;
+import com.chalwk.util.Metrics.Histogram;
+import com.chalwk.util.Metrics.Metrics;
+import com.chalwk.util.ProgramDirectory;
+import com.chalwk.util.ServerMonitor;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the real {@link ServerMonitor} against simulated game servers and a simulated Discord, and reports how it
+ * keeps up.
+ * <p>
+ * Records come from a {@link LoadGenerator}, or from a recorded journal through a {@link Replay}, and are appended to
+ * the journal in a scratch directory when they are due, as Discord.lua would append them. The monitor delivers them
+ * through a {@link StubDiscord} with the configured latency, rate limits and failures. Every event carries a marker
+ * in its description, so its end-to-end latency, from being appended to Discord confirming the message carrying it,
+ * can be measured even when it is sent in a batch or a digest.
+ * <p>
+ * The simulated Discord is an in-process stand-in for JDA's REST actions, not an HTTP endpoint: calls never go through
+ * JDA's requester, its rate limit buckets or the HTTP client, and a call over its route's limit is held back until
+ * the next window instead of being answered with a 429. The harness therefore measures the bot's own pipeline under
+ * delay and throttling, but not JDA's 429 and {@code Retry-After} handling, and the REST metrics counted by
+ * {@link com.chalwk.util.Metrics.RestMetrics} stay at zero.
+ * <p>
+ * Options, all optional, each followed by its value:
+ * <pre>
+ *   --servers 50            simulated game servers
+ *   --events 30             gameplay events per server and minute
+ *   --churn 4               joins and leaves per server and minute
+ *   --map-minutes 10        mean length of a game; every map change is a burst of records
+ *   --duration 60           seconds of traffic to generate
+ *   --seed 1                seed of the generated traffic
+ *   --replay file           replay a recorded journal instead of generating traffic
+ *   --speed 1               how many times faster than recorded to replay it
+ *   --record file           write the generated traffic to a file and exit, for replaying later
+ *   --latency 100           least latency of a Discord call, in milliseconds
+ *   --jitter 100            most random latency added to a call, in milliseconds
+ *   --route-limit 5         calls allowed per channel route and window (0 = no limit)
+ *   --route-window 5000     length of a rate limit window, in milliseconds
+ *   --failure-rate 0.01     fraction of calls failing with a server error
+ *   --drain 30              seconds to wait for outstanding events once the traffic ends
+ *   --dir path              program directory to use instead of a temporary one
+ * </pre>
+ * Run it with: {@code mvn -Pperf test-compile exec:exec -Dperf.main=com.chalwk.perf.LoadHarness -Dperf.args="--servers 50"}
+ */
+public final class LoadHarness {
+
+    private static final long GUILD_ID = 1283163771287765000L;
+
+    // Brackets the sequence number appended to every event's description.
+    private static final char MARKER_START = '⟦';
+    private static final char MARKER_END = '⟧';
+
+    private final StubDiscord discord;
+
+    // When each event not confirmed yet was appended, as a System.nanoTime(), keyed by its marker.
+    private final Map<Long, Long> outstanding = new ConcurrentHashMap<>();
+
+    private final Histogram latency = Metrics.histogram("halo_loadtest_latency_millis",
+            "Time from appending an event to Discord confirming it, in milliseconds");
+
+    private final AtomicLong duplicates = new AtomicLong();
+    private long events;
+    private long statuses;
+    private long maxLagNanos;
+
+    /**
+     * Creates a harness delivering to a stub.
+     *
+     * @param discord The stub the monitor delivers to.
+     */
+    private LoadHarness(StubDiscord discord) {
+        this.discord = discord;
+        discord.onSent(this::confirmed);
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args The options; see the class documentation.
+     * @throws Exception If the test cannot be run.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+
+        if (options.containsKey("dir")) {
+            ProgramDirectory.use(Path.of(options.get("dir")));
+        } else {
+            ProgramDirectory.useTemporary();
+        }
+
+        LoadGenerator.Profile profile = new LoadGenerator.Profile(
+                Integer.parseInt(options.getOrDefault("servers", "50")),
+                Double.parseDouble(options.getOrDefault("events", "30")),
+                Double.parseDouble(options.getOrDefault("churn", "4")),
+                Double.parseDouble(options.getOrDefault("map-minutes", "10")),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(options.getOrDefault("duration", "60"))),
+                Long.parseLong(options.getOrDefault("seed", "1")));
+
+        if (options.containsKey("record")) {
+            record(new LoadGenerator(profile), Path.of(options.get("record")));
+            return;
+        }
+
+        StubDiscord discord = new StubDiscord(
+                Long.parseLong(options.getOrDefault("latency", "100")),
+                Long.parseLong(options.getOrDefault("jitter", "100")),
+                Integer.parseInt(options.getOrDefault("route-limit", "5")),
+                Long.parseLong(options.getOrDefault("route-window", "5000")),
+                Double.parseDouble(options.getOrDefault("failure-rate", "0.01")));
+        LoadHarness harness = new LoadHarness(discord);
+        long drainNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("drain", "30")));
+
+        if (options.containsKey("replay")) {
+            double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+            try (Replay replay = new Replay(Path.of(options.get("replay")), speed)) {
+                System.out.println("Replaying " + options.get("replay") + " at " + speed + "x");
+                harness.run(replay, drainNanos);
+                if (replay.getSkipped() > 0) {
+                    System.out.println("Skipped " + replay.getSkipped() + " lines that are not JSON records");
+                }
+            }
+        } else {
+            System.out.println("Simulating " + profile);
+            harness.run(new LoadGenerator(profile), drainNanos);
+        }
+        // The monitor's scheduler does not stop on its own.
+        System.exit(0);
+    }
+
+    /**
+     * Parses {@code --name value} pairs.
+     *
+     * @param args The arguments.
+     * @return The values, keyed by option name without the dashes.
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    /**
+     * Writes all the records of a source to a file, without waiting for them to be due.
+     *
+     * @param source The records.
+     * @param file   The file to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void record(RecordSource source, Path file) throws IOException {
+        long count = 0;
+        try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (RecordSource.TimedRecord record; (record = source.next()) != null; count++) {
+                writer.write(record.line());
+            }
+        }
+        System.out.println("Wrote " + count + " records to " + file);
+    }
+
+    /**
+     * Appends the records of a source to the journal as they fall due, waits for the outstanding events and prints
+     * the report.
+     *
+     * @param source     The records.
+     * @param drainNanos How long to wait for outstanding events once all records have been appended.
+     * @throws Exception If the test cannot be run.
+     */
+    private void run(RecordSource source, long drainNanos) throws Exception {
+        ServerMonitor.getInstance().register(discord.guild(GUILD_ID));
+
+        Path journal = FileIO.getFilePath(EventJournal.JOURNAL_FILE);
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            for (RecordSource.TimedRecord record; (record = source.next()) != null; ) {
+                long due = started + TimeUnit.MILLISECONDS.toNanos(record.atMillis());
+                long now = System.nanoTime();
+                if (due > now) {
+                    LockSupport.parkNanos(due - now);
+                } else {
+                    maxLagNanos = Math.max(maxLagNanos, now - due);
+                }
+                append(channel, record.line());
+            }
+        }
+        long generated = System.nanoTime();
+
+        long deadline = generated + drainNanos;
+        while (!outstanding.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        report(started, generated);
+    }
+
+    /**
+     * Appends a record to the journal, marking it first if it is an event.
+     *
+     * @param channel The journal.
+     * @param line    The record.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void append(FileChannel channel, String line) throws IOException {
+        JSONObject record = new JSONObject(line);
+        if ("event".equals(record.optString("type"))) {
+            long marker = ++events;
+            record.put("description", record.optString("description") + "\n" + MARKER_START + marker + MARKER_END);
+            record.put("time", System.currentTimeMillis() / 1000);
+            line = record + "\n";
+            outstanding.put(marker, System.nanoTime());
+        } else if ("status".equals(record.optString("type"))) {
+            statuses++;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Records the latency of every event in an embed Discord has confirmed.
+     *
+     * @param embed The embed.
+     */
+    private void confirmed(MessageEmbed embed) {
+        String description = embed.getDescription();
+        if (description == null) return;
+        long now = System.nanoTime();
+        int start = -1;
+        while ((start = description.indexOf(MARKER_START, start + 1)) >= 0) {
+            int end = description.indexOf(MARKER_END, start);
+            if (end < 0) break;
+            long marker;
+            try {
+                marker = Long.parseLong(description, start + 1, end, 10);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            Long appended = outstanding.remove(marker);
+            if (appended == null) {
+                duplicates.incrementAndGet();
+            } else {
+                latency.record(TimeUnit.NANOSECONDS.toMillis(now - appended));
+            }
+        }
+    }
+
+    /**
+     * Prints the results of the test.
+     *
+     * @param started   When the first record was due, as a System.nanoTime().
+     * @param generated When the last record was appended, as a System.nanoTime().
+     */
+    private void report(long started, long generated) {
+        Map<String, Number> metrics = Metrics.snapshot();
+        long dropped = sum(metrics, "halo_events_dropped_total.");
+        long delivered = latency.getCount();
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf("%nRecords appended:    %d events, %d statuses in %.1f s (emitter fell behind by at most %d ms)%n",
+                events, statuses, (generated - started) / 1e9, TimeUnit.NANOSECONDS.toMillis(maxLagNanos));
+        System.out.printf("Events delivered:    %d (%.1f/s)%n", delivered, delivered / seconds);
+        System.out.printf("Events lost:         %d dropped by the bot, %d still undelivered, %d delivered twice%n",
+                dropped, outstanding.size(), duplicates.get());
+        System.out.printf("Delivery latency:    p50 %d ms, p90 %d ms, p99 %d ms, max %d ms%n",
+                latency.quantile(0.5), latency.quantile(0.9), latency.quantile(0.99), latency.quantile(1));
+        System.out.printf("Discord calls:       %d messages (%d embeds), %d edits, %d rate limited, %d failed%n",
+                discord.getMessagesSent(), discord.getEmbedsSent(), discord.getMessagesEdited(),
+                discord.getRateLimited(), discord.getFailed());
+        System.out.println("                     (simulated in process: rate limited calls were delayed, not answered"
+                + " with 429; JDA's requester and REST metrics were not exercised)");
+        System.out.printf("Delivery queue:      %s notifications rejected as the queue was full%n",
+                metrics.getOrDefault("halo_delivery_rejected_total", 0));
+        System.out.printf("Monitor tick:        p50 %s us, p99 %s us, max %s us%n",
+                metrics.get("halo_monitor_tick_micros.p50"), metrics.get("halo_monitor_tick_micros.p99"),
+                metrics.get("halo_monitor_tick_micros.max"));
+    }
+
+    /**
+     * Adds up the values of a labeled metric.
+     *
+     * @param metrics The metrics snapshot.
+     * @param prefix  The name of the metric followed by a dot.
+     * @return The sum over all labels.
+     */
+    private static long sum(Map<String, Number> metrics, String prefix) {
+        long sum = 0;
+        for (Map.Entry<String, Number> entry : metrics.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                sum += entry.getValue().longValue();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,264 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.perf;
+
+import com.chalwk.util.EventCodec;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks that every record Discord.lua writes decodes in {@link EventCodec} to what the script meant.
+ * <p>
+ * The encoders below are line-for-line ports of {@code varint}, {@code varstring}, {@code frame},
+ * {@code encodeStatus}, {@code encodeBinaryEvent} and the JSON records of {@code appendRecord} and {@code notify} in
+ * Discord.lua, so the check exercises the script's byte layout rather than the Java encoders. Any change to those Lua
+ * functions belongs here too. Every record type is written in both formats, decoded, and compared field by field;
+ * the first mismatch fails the run with a non-zero exit code.
+ * <p>
+ * Run it with: {@code mvn -Pperf test-compile exec:exec -Dperf.main=com.chalwk.perf.LuaRecordCheck}
+ */
+public final class LuaRecordCheck {
+
+    private static final String SERVER_ID = "server-1";
+
+    // The number of records checked so far.
+    private static int checked;
+
+    private LuaRecordCheck() {
+    }
+
+    /**
+     * Runs the checks.
+     *
+     * @param args Unused.
+     */
+    public static void main(String[] args) {
+        JSONObject status = new JSONObject(JournalRecords.status(SERVER_ID, 1283163771287765045L, "bloodgulch",
+                "CTF", List.of("Chalwk", "Ünïcødé ☠️"))).getJSONObject("status");
+        Map<String, String> values = new TreeMap<>();
+        values.put("$name", "Ünïcødé ☠️");
+        values.put("$total", "2");
+
+        checkStatus(status);
+        checkEvent(values);
+        checkRedefinedTemplate(values);
+
+        System.out.println("OK: " + checked + " Discord.lua records decoded as written");
+    }
+
+    /**
+     * Checks the status record, as a JSON line and as a binary frame.
+     *
+     * @param status The server status.
+     */
+    private static void checkStatus(JSONObject status) {
+        String line = new JSONObject().put("server", SERVER_ID).put("type", "status").put("status", status) + "\n";
+        byte[] binary = frame(EventCodec.STATUS, varstring(status.toString()));
+
+        for (byte[] record : new byte[][]{line.getBytes(StandardCharsets.UTF_8), binary}) {
+            JSONObject decoded = decodeOne(new EventCodec(), record);
+            expect(SERVER_ID, decoded.getString("server"), "status server");
+            expect("status", decoded.getString("type"), "status type");
+            expect(true, status.similar(decoded.getJSONObject("status")), "status body");
+        }
+    }
+
+    /**
+     * Checks an event record: the raw JSON line with its values, and the template and event frames.
+     *
+     * @param values The placeholder values, sorted by name as Discord.lua sorts them.
+     */
+    private static void checkEvent(Map<String, String> values) {
+        String title = "🟢 $name joined!";
+        String description = "**$name** has connected.\nPlayers online: **$total**";
+        String expectedTitle = "🟢 Ünïcødé ☠️ joined!";
+        String expectedDescription = "**Ünïcødé ☠️** has connected.\nPlayers online: **2**";
+
+        String line = new JSONObject()
+                .put("server", SERVER_ID)
+                .put("type", "event")
+                .put("event", "OnJoin")
+                .put("time", 1_729_000_000L)
+                .put("title", title)
+                .put("description", description)
+                .put("color", "GREEN")
+                .put("channel", "1283163771287765046")
+                .put("args", new JSONObject(values)) + "\n";
+        byte[] binary = concat(templateFrame(1, "OnJoin", title, description, values),
+                eventFrame(1, 1_729_000_000L, values));
+
+        for (byte[] record : new byte[][]{line.getBytes(StandardCharsets.UTF_8), binary}) {
+            JSONObject decoded = decodeOne(new EventCodec(), record);
+            expect(SERVER_ID, decoded.getString("server"), "event server");
+            expect("event", decoded.getString("type"), "event type");
+            expect("OnJoin", decoded.getString("event"), "event name");
+            expect(1_729_000_000L, decoded.getLong("time"), "event time");
+            expect(expectedTitle, decoded.getString("title"), "event title");
+            expect(expectedDescription, decoded.getString("description"), "event description");
+            expect("GREEN", decoded.getString("color"), "event color");
+            expect("1283163771287765046", decoded.getString("channel"), "event channel");
+        }
+    }
+
+    /**
+     * Checks that events keep decoding against an interned template, and that defining the ID again replaces it, as
+     * after the script reconnects or starts a fresh journal.
+     *
+     * @param values The placeholder values.
+     */
+    private static void checkRedefinedTemplate(Map<String, String> values) {
+        EventCodec codec = new EventCodec();
+        decodeOne(codec, concat(templateFrame(7, "OnJoin", "$name", "", values), eventFrame(7, 1, values)));
+        expect("Ünïcødé ☠️", decodeOne(codec, eventFrame(7, 2, values)).getString("title"), "interned template");
+        JSONObject redefined = decodeOne(codec, concat(templateFrame(7, "OnQuit", "$name left", "", values),
+                eventFrame(7, 3, values)));
+        expect("OnQuit", redefined.getString("event"), "redefined template event");
+        expect("Ünïcødé ☠️ left", redefined.getString("title"), "redefined template title");
+    }
+
+    /**
+     * Decodes a stream of records the way the journal and socket readers split it, expecting exactly one record
+     * carrying something to deliver.
+     *
+     * @param codec  The codec to decode with.
+     * @param stream The records.
+     * @return The decoded record.
+     */
+    private static JSONObject decodeOne(EventCodec codec, byte[] stream) {
+        ByteBuffer buffer = ByteBuffer.wrap(stream);
+        JSONObject result = null;
+        int start = 0;
+        while (start < stream.length) {
+            int end = EventCodec.recordEnd(buffer, start);
+            expect(true, end > start, "complete record at " + start);
+            JSONObject decoded = codec.decode(buffer.duplicate().position(start).limit(end));
+            if (decoded != null) {
+                expect(null, result, "a single delivered record");
+                result = decoded;
+            }
+            start = end;
+        }
+        expect(true, result != null, "a delivered record");
+        checked++;
+        return result;
+    }
+
+    /**
+     * Port of {@code encodeBinaryEvent}'s template definition.
+     *
+     * @param id          The template ID.
+     * @param event       The name of the event.
+     * @param title       The title, with placeholders.
+     * @param description The description, with placeholders.
+     * @param values      The placeholder values, whose names are defined in order.
+     * @return The frame.
+     */
+    private static byte[] templateFrame(int id, String event, String title, String description,
+                                        Map<String, String> values) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.writeBytes(varint(id));
+        payload.writeBytes(varstring(event));
+        payload.writeBytes(varstring(title));
+        payload.writeBytes(varstring(description));
+        payload.writeBytes(varstring("GREEN"));
+        payload.writeBytes(varstring("1283163771287765046"));
+        payload.writeBytes(varint(values.size()));
+        for (String name : values.keySet()) {
+            payload.writeBytes(varstring(name));
+        }
+        return frame(EventCodec.TEMPLATE, payload.toByteArray());
+    }
+
+    /**
+     * Port of {@code encodeBinaryEvent}'s event record.
+     *
+     * @param id     The template ID.
+     * @param time   The time of the event, in seconds since the epoch.
+     * @param values The placeholder values, in the order of their names.
+     * @return The frame.
+     */
+    private static byte[] eventFrame(int id, long time, Map<String, String> values) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.writeBytes(varint(id));
+        payload.writeBytes(varint(time));
+        payload.writeBytes(varint(values.size()));
+        for (String value : values.values()) {
+            payload.writeBytes(varstring(value));
+        }
+        return frame(EventCodec.EVENT, payload.toByteArray());
+    }
+
+    /**
+     * Port of {@code frame}: the magic and version bytes, the payload length, the record type and the server ID.
+     *
+     * @param recordType The record type.
+     * @param payload    The payload after the record type and server ID.
+     * @return The frame.
+     */
+    private static byte[] frame(int recordType, byte[] payload) {
+        byte[] full = concat(new byte[]{(byte) recordType}, varstring(SERVER_ID), payload);
+        return concat(new byte[]{(byte) 0xB1, 1}, varint(full.length), full);
+    }
+
+    /**
+     * Port of {@code varstring}: the byte length, as Lua's {@code #} counts it, then the bytes.
+     *
+     * @param value The string.
+     * @return The encoded bytes.
+     */
+    private static byte[] varstring(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return concat(varint(bytes.length), bytes);
+    }
+
+    /**
+     * Port of {@code varint}.
+     *
+     * @param n The unsigned integer.
+     * @return The encoded bytes.
+     */
+    private static byte[] varint(long n) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        do {
+            long b = n % 128;
+            n = n / 128;
+            bytes.write((int) (n > 0 ? b + 128 : b));
+        } while (n != 0);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Joins byte arrays.
+     *
+     * @param parts The arrays.
+     * @return The arrays, one after another.
+     */
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Fails the run if a value differs from the expected one.
+     *
+     * @param expected The expected value.
+     * @param actual   The actual value.
+     * @param what     What is being checked.
+     */
+    private static void expect(Object expected, Object actual, String what) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            System.err.println("FAILED: " + what + ": expected " + expected + " but was " + actual);
+            System.exit(1);
+        }
+    }
+}
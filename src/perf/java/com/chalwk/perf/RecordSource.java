@@ -0,0 +1,29 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.perf;
+
+import java.io.IOException;
+
+/**
+ * A stream of journal records, each due at a time relative to the start of the stream.
+ */
+public interface RecordSource {
+
+    /**
+     * Gets the next record.
+     *
+     * @return The next record, or null at the end of the stream. Records are returned in the order they are due.
+     * @throws IOException If an I/O error occurs reading the records.
+     */
+    TimedRecord next() throws IOException;
+
+    /**
+     * A journal record and when it is due.
+     *
+     * @param atMillis When the record is due, in milliseconds since the start of the stream.
+     * @param line     The record, a line of JSON terminated by a newline.
+     */
+    record TimedRecord(long atMillis, String line) {
+    }
+}
@@ -0,0 +1,85 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.perf;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Replays a recorded event journal, sped up by a factor.
+ * <p>
+ * Records are timed by the {@code time} of the events, which Discord.lua writes in whole seconds; a status record is
+ * due with the record before it. Only JSON lines are replayed: binary frames, and anything else that is not a JSON
+ * object, are skipped and counted.
+ */
+public final class Replay implements RecordSource, AutoCloseable {
+
+    private final BufferedReader reader;
+    private final double speed;
+
+    // The time of the first event, and of the latest one, in seconds since the epoch.
+    private long firstTime = -1;
+    private long lastTime = -1;
+
+    // The number of lines skipped because they are not JSON objects.
+    private long skipped;
+
+    /**
+     * Opens a recorded journal.
+     *
+     * @param journal The journal.
+     * @param speed   How many times faster than recorded to replay it.
+     * @throws IOException If the journal cannot be opened.
+     */
+    public Replay(Path journal, double speed) throws IOException {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed must be positive: " + speed);
+        }
+        this.reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8);
+        this.speed = speed;
+    }
+
+    @Override
+    public TimedRecord next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+            JSONObject record;
+            try {
+                record = new JSONObject(line);
+            } catch (JSONException e) {
+                skipped++;
+                continue;
+            }
+            long time = record.optLong("time");
+            if (time > 0) {
+                if (firstTime < 0) firstTime = time;
+                lastTime = Math.max(lastTime, time);
+            }
+            long at = firstTime < 0 ? 0 : (long) ((lastTime - firstTime) * 1000 / speed);
+            return new TimedRecord(at, line + "\n");
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of lines skipped because they are not JSON objects.
+     *
+     * @return The number of lines.
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
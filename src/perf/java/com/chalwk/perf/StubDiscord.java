@@ -0,0 +1,461 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.perf;
+
+import com.chalwk.util.Execution;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+import net.dv8tion.jda.api.requests.restaction.MessageEditAction;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A stand-in for the parts of JDA the bot delivers messages through, for benchmarks and load tests.
+ * <p>
+ * Guilds, text channels and messages are dynamic proxies answering the few calls the bot makes, and zero, null or an
+ * empty collection for everything else. A guild finds a channel for any numeric ID it is asked for. Sending and
+ * editing messages is counted and answered by a {@link StubRestAction} without any network traffic, so nothing but
+ * the bot's own code is measured.
+ * <p>
+ * For load tests the stub can also behave like a busy Discord: calls take a latency with random jitter, a fraction
+ * of them fail with a server error, and every route allows a number of calls per window. A call over its route's
+ * limit waits for the next window and is counted as rate limited.
+ * <p>
+ * The stub replaces JDA's REST actions in process; it is not an HTTP server. Calls never reach JDA's requester, its
+ * rate limit buckets or its HTTP client, so no 429 response or {@code Retry-After} header is ever produced, and the
+ * delay of an over-limit call only approximates JDA waiting one out. Neither JDA's rate limit handling nor the REST
+ * metrics recorded by its HTTP client are exercised.
+ */
+public final class StubDiscord implements AutoCloseable {
+
+    // Answers the REST calls, after their latency.
+    private final ScheduledExecutorService responder = Executors.newSingleThreadScheduledExecutor(
+            Execution.threadFactory("stub-discord", true));
+
+    // The latency of every REST call, and the most random latency added to it, in nanoseconds.
+    private final long latencyNanos;
+    private final long jitterNanos;
+
+    // The calls allowed per route and window; zero or less for no limit.
+    private final int routeLimit;
+    private final long routeWindowNanos;
+
+    // The fraction of calls failing with a server error.
+    private final double failureRate;
+
+    // The rate limit bucket of each route, keyed by route.
+    private final Map<String, Bucket> buckets = new HashMap<>();
+
+    // Receives every embed Discord has confirmed sending.
+    private volatile Consumer<MessageEmbed> onSent = embed -> {
+    };
+
+    // Hands out snowflakes for new messages.
+    private final AtomicLong nextID = new AtomicLong(1L << 40);
+
+    // The channels handed out so far, keyed by channel ID.
+    private final Map<Long, TextChannel> channels = new ConcurrentHashMap<>();
+
+    private final JDA jda = proxy(JDA.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+
+    // Recorded calls.
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder messagesEdited = new LongAdder();
+    private final LongAdder embedsSent = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Creates a stub answering every call after a fixed latency.
+     *
+     * @param latencyMillis The latency of every REST call, in milliseconds; zero answers as soon as possible.
+     */
+    public StubDiscord(long latencyMillis) {
+        this(latencyMillis, 0, 0, 0, 0);
+    }
+
+    /**
+     * Creates a stub with random latency, failures and per-route rate limits.
+     *
+     * @param latencyMillis     The least latency of a REST call, in milliseconds.
+     * @param jitterMillis      The most random latency added to a call, in milliseconds.
+     * @param routeLimit        The calls allowed per route and window; zero or less for no limit.
+     * @param routeWindowMillis The length of a rate limit window, in milliseconds.
+     * @param failureRate       The fraction of calls failing with a server error, between 0 and 1.
+     */
+    public StubDiscord(long latencyMillis, long jitterMillis, int routeLimit, long routeWindowMillis, double failureRate) {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(jitterMillis);
+        this.routeLimit = routeLimit;
+        this.routeWindowNanos = TimeUnit.MILLISECONDS.toNanos(routeWindowMillis);
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Sets the listener receiving every embed once the message carrying it has been sent.
+     *
+     * @param listener The listener; called on the responder thread.
+     */
+    public void onSent(Consumer<MessageEmbed> listener) {
+        this.onSent = listener;
+    }
+
+    /**
+     * Creates a guild holding every channel it is asked for.
+     *
+     * @param guildID The ID of the guild.
+     * @return The guild.
+     */
+    public Guild guild(long guildID) {
+        return proxy(Guild.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getIdLong" -> guildID;
+            case "getId" -> Long.toString(guildID);
+            case "getName" -> "Guild " + guildID;
+            case "getJDA" -> jda;
+            case "getTextChannelById" -> channel(proxy, args[0]);
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    /**
+     * Gets the JDA instance the stubs belong to; it answers every call with a default value.
+     *
+     * @return The JDA stub.
+     */
+    public JDA getJDA() {
+        return jda;
+    }
+
+    /**
+     * Gets the number of messages sent.
+     *
+     * @return The number of messages.
+     */
+    public long getMessagesSent() {
+        return messagesSent.sum();
+    }
+
+    /**
+     * Gets the number of messages edited.
+     *
+     * @return The number of edits.
+     */
+    public long getMessagesEdited() {
+        return messagesEdited.sum();
+    }
+
+    /**
+     * Gets the number of embeds in the messages sent.
+     *
+     * @return The number of embeds.
+     */
+    public long getEmbedsSent() {
+        return embedsSent.sum();
+    }
+
+    /**
+     * Gets the number of calls that had to wait for their route's rate limit.
+     *
+     * @return The number of calls.
+     */
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * Gets the number of calls failed with a simulated server error.
+     *
+     * @return The number of calls.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Answers a REST call once its route's rate limit allows it and its latency has passed. Calls made after the stub
+     * has been closed are never answered, like calls on a connection that has gone away.
+     *
+     * @param route    The route of the call.
+     * @param response Computes the result and completes the call.
+     */
+    void answer(String route, Runnable response) {
+        long now = System.nanoTime();
+        long delay = reserve(route, now) - now + latencyNanos;
+        if (jitterNanos > 0) {
+            delay += ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+        }
+        try {
+            if (delay > 0) {
+                responder.schedule(response, delay, TimeUnit.NANOSECONDS);
+            } else {
+                responder.execute(response);
+            }
+        } catch (RejectedExecutionException e) {
+            // Closed.
+        }
+    }
+
+    /**
+     * Takes a call from a route's rate limit bucket, moving on to later windows while the current one is used up.
+     *
+     * @param route The route of the call.
+     * @param now   The current {@link System#nanoTime()}.
+     * @return The time at which the call may be made.
+     */
+    private long reserve(String route, long now) {
+        if (routeLimit <= 0) {
+            return now;
+        }
+        synchronized (buckets) {
+            Bucket bucket = buckets.computeIfAbsent(route, key -> new Bucket());
+            if (now - bucket.reset >= 0) {
+                bucket.reset = now + routeWindowNanos;
+                bucket.remaining = routeLimit;
+            }
+            if (bucket.remaining == 0) {
+                rateLimited.increment();
+                bucket.reset += routeWindowNanos;
+                bucket.remaining = routeLimit;
+            }
+            bucket.remaining--;
+            return Math.max(now, bucket.reset - routeWindowNanos);
+        }
+    }
+
+    /**
+     * Fails a call with a simulated server error, at the configured failure rate.
+     *
+     * @throws IllegalStateException If the call fails.
+     */
+    private void maybeFail() {
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            failed.increment();
+            throw new IllegalStateException("Simulated Discord server error");
+        }
+    }
+
+    @Override
+    public void close() {
+        responder.shutdownNow();
+    }
+
+    /**
+     * Gets the channel with an ID, creating it the first time it is asked for.
+     *
+     * @param guild The guild the channel belongs to.
+     * @param id    The ID of the channel, as a String or a long.
+     * @return The channel, or null if the ID is not a number.
+     */
+    private TextChannel channel(Object guild, Object id) {
+        long channelID;
+        try {
+            channelID = id instanceof Long value ? value : Long.parseLong(id.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return channels.computeIfAbsent(channelID, key -> proxy(TextChannel.class, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "getIdLong" -> channelID;
+                    case "getId" -> Long.toString(channelID);
+                    case "getName" -> "channel-" + channelID;
+                    case "getGuild" -> guild;
+                    case "getJDA" -> jda;
+                    case "sendMessageEmbeds" -> send(channelID, embeds(args));
+                    case "editMessageEmbedsById" -> edit(channelID, Long.parseLong(args[0].toString()));
+                    default -> defaultValue(method.getReturnType());
+                }));
+    }
+
+    /**
+     * Builds the call sending a message.
+     *
+     * @param channelID The ID of the channel.
+     * @param embeds    The embeds of the message.
+     * @return The call, answered with the new message.
+     */
+    private MessageCreateAction send(long channelID, List<MessageEmbed> embeds) {
+        String route = "POST /channels/" + channelID + "/messages";
+        return action(MessageCreateAction.class, new StubRestAction<>(this, route, () -> {
+            maybeFail();
+            messagesSent.increment();
+            embedsSent.add(embeds.size());
+            embeds.forEach(onSent);
+            return message(nextID.getAndIncrement());
+        }));
+    }
+
+    /**
+     * Builds the call editing a message.
+     *
+     * @param channelID The ID of the channel.
+     * @param messageID The ID of the message.
+     * @return The call, answered with the edited message.
+     */
+    private MessageEditAction edit(long channelID, long messageID) {
+        String route = "PATCH /channels/" + channelID + "/messages/{message_id}";
+        return action(MessageEditAction.class, new StubRestAction<>(this, route, () -> {
+            maybeFail();
+            messagesEdited.increment();
+            return message(messageID);
+        }));
+    }
+
+    /**
+     * Creates a message.
+     *
+     * @param messageID The ID of the message.
+     * @return The message.
+     */
+    private Message message(long messageID) {
+        return proxy(Message.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getIdLong" -> messageID;
+            case "getId" -> Long.toString(messageID);
+            case "getJDA" -> jda;
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    /**
+     * Wraps a call in one of JDA's typed actions. The RestAction methods are handled by the call; builder methods,
+     * which return the action itself, are accepted and ignored.
+     *
+     * @param type The type of the action.
+     * @param call The call.
+     * @param <A>  The type of the action.
+     * @return The action.
+     */
+    private static <A extends RestAction<?>> A action(Class<A> type, StubRestAction<?> call) {
+        return proxy(type, (proxy, method, args) -> {
+            Class<?> returns = method.getReturnType();
+            Method target = restActionMethod(method);
+            if (target != null && (returns == RestAction.class || !returns.isInstance(proxy))) {
+                try {
+                    return target.invoke(call, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            return returns != Object.class && returns.isInstance(proxy) ? proxy : defaultValue(returns);
+        });
+    }
+
+    /**
+     * Finds the RestAction method a method of a typed action overrides.
+     *
+     * @param method The method.
+     * @return The RestAction method, or null if it is not one.
+     */
+    private static Method restActionMethod(Method method) {
+        try {
+            return RestAction.class.getMethod(method.getName(), method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Collects the embeds passed to {@code sendMessageEmbeds}.
+     *
+     * @param args The arguments: a collection, or an embed followed by an array of further embeds.
+     * @return The embeds.
+     */
+    private static List<MessageEmbed> embeds(Object[] args) {
+        List<MessageEmbed> embeds = new ArrayList<>();
+        if (args[0] instanceof Collection<?> collection) {
+            collection.forEach(embed -> embeds.add((MessageEmbed) embed));
+            return embeds;
+        }
+        embeds.add((MessageEmbed) args[0]);
+        if (args.length > 1 && args[1] instanceof MessageEmbed[] more) {
+            embeds.addAll(Arrays.asList(more));
+        }
+        return embeds;
+    }
+
+    /**
+     * Creates a dynamic proxy that also answers {@code equals}, {@code hashCode} and {@code toString} by identity.
+     *
+     * @param type    The interface to implement.
+     * @param handler Answers every other call.
+     * @param <T>     The interface type.
+     * @return The proxy.
+     */
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        Object proxy = Proxy.newProxyInstance(StubDiscord.class.getClassLoader(), new Class<?>[]{type},
+                (self, method, args) -> switch (method.getName()) {
+                    case "equals" -> method.getParameterCount() == 1 ? self == args[0] : handler.invoke(self, method, args);
+                    case "hashCode" -> method.getParameterCount() == 0 ? System.identityHashCode(self) : handler.invoke(self, method, args);
+                    case "toString" -> method.getParameterCount() == 0 ? "Stub" + type.getSimpleName() : handler.invoke(self, method, args);
+                    default -> handler.invoke(self, method, args);
+                });
+        return type.cast(proxy);
+    }
+
+    /**
+     * Gets the value a stub answers a call it does not implement with.
+     *
+     * @param type The return type of the call.
+     * @return Zero, false, an empty collection or null.
+     */
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == long.class) return 0L;
+        if (type == int.class) return 0;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return '\0';
+        if (type == List.class || type == Collection.class) return Collections.emptyList();
+        if (type == Set.class) return Collections.emptySet();
+        return null;
+    }
+
+    /**
+     * The rate limit window of a route.
+     */
+    private static final class Bucket {
+
+        // When the current window ends, as a System.nanoTime().
+        private long reset = System.nanoTime();
+
+        // The calls left in the current window.
+        private int remaining;
+    }
+
+    /**
+     * Answers the calls made on a stub.
+     */
+    @FunctionalInterface
+    private interface Handler {
+
+        /**
+         * Answers a call.
+         *
+         * @param proxy  The stub.
+         * @param method The method called.
+         * @param args   The arguments, or null.
+         * @return The result.
+         * @throws Throwable Whatever the call throws.
+         */
+        Object invoke(Object proxy, Method method, Object[] args) throws Throwable;
+    }
+}
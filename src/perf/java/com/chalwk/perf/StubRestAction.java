@@ -0,0 +1,83 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.perf;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A REST call answered by a {@link StubDiscord} instead of Discord.
+ * <p>
+ * The result is computed when the call is answered, on the stub's responder thread, so the call is asynchronous in
+ * the same way a real one is. Queueing, completing and submitting the call all go through {@link #queue}, and the
+ * operators RestAction provides ({@code map}, {@code onErrorFlatMap}, ...) work on top of it unchanged.
+ *
+ * @param <T> The type of the result.
+ */
+public final class StubRestAction<T> implements RestAction<T> {
+
+    private final StubDiscord discord;
+    private final String route;
+    private final Supplier<T> result;
+
+    /**
+     * Creates a call.
+     *
+     * @param discord The stub answering the call.
+     * @param route   The route of the call, e.g. {@code POST /channels/123/messages}.
+     * @param result  Computes the result when the call is answered; may throw to fail the call.
+     */
+    StubRestAction(StubDiscord discord, String route, Supplier<T> result) {
+        this.discord = discord;
+        this.route = route;
+        this.result = result;
+    }
+
+    @Override
+    public JDA getJDA() {
+        return discord.getJDA();
+    }
+
+    @Override
+    public RestAction<T> setCheck(BooleanSupplier checks) {
+        return this;
+    }
+
+    @Override
+    public void queue(Consumer<? super T> success, Consumer<? super Throwable> failure) {
+        discord.answer(route, () -> {
+            T value;
+            try {
+                value = result.get();
+            } catch (RuntimeException e) {
+                if (failure != null) failure.accept(e);
+                return;
+            }
+            if (success != null) success.accept(value);
+        });
+    }
+
+    @Override
+    public T complete(boolean shouldQueue) {
+        try {
+            return submit(shouldQueue).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<T> submit(boolean shouldQueue) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        queue(future::complete, future::completeExceptionally);
+        return future;
+    }
+}
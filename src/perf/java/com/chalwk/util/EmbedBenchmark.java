@@ -0,0 +1,47 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.perf.JournalRecords;
+import com.chalwk.util.Model.StatusView;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a server status into the embed sent to Discord, the work done for every status update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbedBenchmark {
+
+    // The number of players in the player list field: an empty server and a full one.
+    @Param({"0", "16"})
+    public int players;
+
+    private StatusView status;
+
+    @Setup
+    public void setup() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            names.add("Player" + i);
+        }
+        String record = JournalRecords.status("server-1", 1283163771287765045L, "bloodgulch", "CTF", names);
+        status = StatusView.from(new JSONObject(record).getJSONObject("status"));
+    }
+
+    @Benchmark
+    public MessageEmbed createEmbedMessage() {
+        return Helpers.createEmbedMessage(status).build();
+    }
+}
@@ -0,0 +1,32 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util.Enums;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving the color names Discord.lua writes, including unknown names that fall back to gray.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorNameBenchmark {
+
+    private static final String[] NAMES = {"GREEN", "RED", "BLUE", "YELLOW", "Dark_Green", "purple", "0x00FF00", "NOPE"};
+
+    private int next;
+
+    @Benchmark
+    public Color fromName() {
+        String name = NAMES[next];
+        next = (next + 1) & (NAMES.length - 1);
+        return ColorName.fromName(name);
+    }
+}
@@ -0,0 +1,56 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and saving the bot's JSON state files, using a message ID file as the example.
+ * <p>
+ * {@code save} includes the background write, so it shows the cost of the atomic replace and, with the default
+ * {@code persistFsync} setting, the fsync.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileIOBenchmark {
+
+    private static final String FILE = "benchmark-message-ids.json";
+
+    // The number of servers in the file: a single host, a large community, and far more than anyone runs.
+    @Param({"8", "64", "1024"})
+    public int servers;
+
+    private JSONObject content;
+
+    @Setup
+    public void setup() throws IOException {
+        ProgramDirectory.useTemporary();
+        content = new JSONObject();
+        for (int i = 0; i < servers; i++) {
+            content.put("server-" + i, Long.toString(1283163771287765045L + i));
+        }
+        Files.write(FileIO.getFilePath(FILE), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public JSONObject read() throws IOException {
+        return FileIO.getJSONObjectFromFile(FILE);
+    }
+
+    @Benchmark
+    public void save() {
+        FileIO.saveJSONObjectToFile(content, FILE);
+        WriteBehind.flush();
+    }
+}
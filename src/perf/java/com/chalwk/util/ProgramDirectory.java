@@ -0,0 +1,41 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Points the bot's files at a scratch directory, so benchmarks and load tests never touch a real installation.
+ * Must be called before anything reads settings or opens the journal.
+ */
+public final class ProgramDirectory {
+
+    private ProgramDirectory() {
+    }
+
+    /**
+     * Makes a new temporary directory the program directory.
+     *
+     * @return The directory.
+     * @throws IOException If the directory cannot be created.
+     */
+    public static Path useTemporary() throws IOException {
+        return use(Files.createTempDirectory("halo-bot-perf"));
+    }
+
+    /**
+     * Makes a directory the program directory, creating it if needed.
+     *
+     * @param directory The directory.
+     * @return The directory.
+     * @throws IOException If the directory cannot be created.
+     */
+    public static Path use(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileIO.programPath = directory.toAbsolutePath().toString();
+        return directory;
+    }
+}
@@ -0,0 +1,85 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.perf.JournalRecords;
+import com.chalwk.perf.StubDiscord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one full monitor tick against a stubbed Discord: reading the records appended to the journal, rendering
+ * the changed statuses and notifications, and handing them to the delivery pipeline.
+ * <p>
+ * Each invocation appends a status change and a batch of events for every server, as Discord.lua would, then runs a
+ * tick on the monitor's scheduler and waits for it. The append is part of the measurement so that the journal watcher
+ * cannot consume the records before the measured tick does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerMonitorBenchmark {
+
+    private static final long GUILD_ID = 1283163771287765000L;
+    private static final long CHANNEL_ID = 1283163771287765045L;
+
+    // The number of game servers writing to the journal.
+    @Param({"1", "8"})
+    public int servers;
+
+    // The number of events each server appends per tick; the monitor reads at most 50 per tick.
+    @Param({"1", "5"})
+    public int events;
+
+    private StubDiscord discord;
+    private ServerMonitor monitor;
+    private Path journal;
+    private long tick;
+
+    @Setup
+    public void setup() throws IOException {
+        ProgramDirectory.useTemporary();
+        journal = FileIO.getFilePath(EventJournal.JOURNAL_FILE);
+        discord = new StubDiscord(0);
+        monitor = ServerMonitor.getInstance();
+        monitor.register(discord.guild(GUILD_ID));
+    }
+
+    @TearDown
+    public void tearDown() {
+        discord.close();
+    }
+
+    @Benchmark
+    public void tick() throws IOException, InterruptedException, ExecutionException {
+        StringBuilder records = new StringBuilder();
+        long time = System.currentTimeMillis() / 1000;
+        for (int server = 0; server < servers; server++) {
+            String serverID = "server-" + server;
+            long channelID = CHANNEL_ID + server;
+            // A player count that changes every tick, so the status is always due.
+            records.append(JournalRecords.status(serverID, channelID, "bloodgulch", "CTF",
+                    List.of("Player" + tick % 16)));
+            for (int i = 0; i < events; i++) {
+                records.append(JournalRecords.event(serverID, channelID, "OnJoin", time, "🟢 Player Joined!",
+                        "**Player" + i + "** has connected to the server!", "GREEN"));
+            }
+        }
+        tick++;
+        Files.write(journal, records.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        monitor.tickNow();
+    }
+}